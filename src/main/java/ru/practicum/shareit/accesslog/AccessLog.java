@@ -0,0 +1,187 @@
+package ru.practicum.shareit.accesslog;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Access log written as JSON lines by a background thread.
+ * Request threads only copy the fields of an event into a free slot of the ring buffer. When the writer falls
+ * behind and the buffer is full, events are dropped and counted rather than making requests wait for the disk.
+ */
+@Slf4j
+public class AccessLog implements AutoCloseable {
+    private final AccessLogRingBuffer buffer;
+    private final Path file;
+    private final int batchSize;
+    private final long idleNanos;
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final StringBuilder line = new StringBuilder(256);
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public AccessLog(Path file, int capacity, int batchSize, Duration idle) {
+        this.buffer = new AccessLogRingBuffer(capacity);
+        this.file = file;
+        this.batchSize = batchSize;
+        this.idleNanos = idle.toNanos();
+        this.writer = new Thread(this::writeLoop, "access-log-writer");
+        this.writer.setDaemon(true);
+    }
+
+    public void start() {
+        writer.start();
+    }
+
+    /**
+     * Returns false if the event was dropped because the buffer is full.
+     */
+    public boolean record(long timestamp, String method, String route, String uri, String query, int status,
+                          long userId, long durationMicros, int queries, String error) {
+        long position = buffer.claim();
+
+        if (position < 0) {
+            dropped.increment();
+            return false;
+        }
+
+        buffer.get(position).set(timestamp, method, route, uri, query, status, userId, durationMicros, queries,
+                error);
+        buffer.publish(position);
+        return true;
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getBacklog() {
+        return buffer.backlog();
+    }
+
+    public int getCapacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * Stops the writer once it has written everything recorded so far.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join();
+    }
+
+    private void writeLoop() {
+        try (Writer out = Files.newBufferedWriter(open(), StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND)) {
+            while (true) {
+                boolean stopping = !running;
+                int count = drain(out);
+
+                if (count > 0) {
+                    out.flush();
+                    written.add(count);
+                } else if (stopping) {
+                    return;
+                } else {
+                    LockSupport.parkNanos(idleNanos);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Access log can't be written to {}, further events are dropped", file, e);
+            running = false;
+            drainAsDropped();
+        }
+    }
+
+    private Path open() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        return file;
+    }
+
+    private int drain(Writer out) throws IOException {
+        int count = 0;
+        AccessLogEvent event;
+
+        while (count < batchSize && (event = buffer.poll()) != null) {
+            format(event);
+            buffer.release();
+            out.append(line);
+            count++;
+        }
+        return count;
+    }
+
+    // keeps the buffer moving after a write failure, so requests aren't slowed down by a full buffer
+    private void drainAsDropped() {
+        while (true) {
+            if (buffer.poll() != null) {
+                buffer.release();
+                dropped.increment();
+            } else if (!running && buffer.backlog() == 0) {
+                return;
+            } else {
+                LockSupport.parkNanos(idleNanos);
+            }
+        }
+    }
+
+    private void format(AccessLogEvent event) {
+        line.setLength(0);
+        line.append("{\"time\":\"").append(Instant.ofEpochMilli(event.timestamp)).append('"');
+        field("method", event.method);
+        field("route", event.route);
+        field("uri", event.uri);
+        field("query", event.query);
+        line.append(",\"status\":").append(event.status);
+
+        if (event.userId >= 0) {
+            line.append(",\"userId\":").append(event.userId);
+        }
+        line.append(",\"durationUs\":").append(event.durationMicros);
+        line.append(",\"queries\":").append(event.queries);
+        field("error", event.error);
+        line.append("}\n");
+    }
+
+    private void field(String name, String value) {
+        if (value == null) {
+            return;
+        }
+
+        line.append(",\"").append(name).append("\":\"");
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c < 0x20) {
+                line.append(String.format("\\u%04x", (int) c));
+            } else {
+                line.append(c);
+            }
+        }
+        line.append('"');
+    }
+}
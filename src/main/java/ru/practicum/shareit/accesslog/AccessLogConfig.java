@@ -0,0 +1,60 @@
+package ru.practicum.shareit.accesslog;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "shareit.access-log.enabled", havingValue = "true")
+public class AccessLogConfig implements WebMvcConfigurer {
+    private final MeterRegistry meterRegistry;
+
+    @Value("${shareit.access-log.file:logs/access.log}")
+    private Path file;
+
+    @Value("${shareit.access-log.capacity:65536}")
+    private int capacity;
+
+    @Value("${shareit.access-log.batch-size:512}")
+    private int batchSize;
+
+    @Value("${shareit.access-log.idle:PT0.01S}")
+    private Duration idle;
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public AccessLog accessLog() {
+        AccessLog accessLog = new AccessLog(file, capacity, batchSize, idle);
+
+        FunctionCounter.builder("shareit.accesslog.events", accessLog, AccessLog::getWrittenCount)
+                .description("Access log events written to the file")
+                .tag("result", "written")
+                .register(meterRegistry);
+        FunctionCounter.builder("shareit.accesslog.events", accessLog, AccessLog::getDroppedCount)
+                .description("Access log events dropped because the buffer was full")
+                .tag("result", "dropped")
+                .register(meterRegistry);
+        Gauge.builder("shareit.accesslog.backlog", accessLog, AccessLog::getBacklog)
+                .description("Access log events waiting for the writer")
+                .register(meterRegistry);
+        return accessLog;
+    }
+
+    /**
+     * Registered first, so it also sees the requests the rate limiter refuses.
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AccessLogInterceptor(accessLog())).order(Integer.MIN_VALUE);
+    }
+}
@@ -0,0 +1,37 @@
+package ru.practicum.shareit.accesslog;
+
+/**
+ * A preallocated slot of the ring buffer. Request threads fill it with values and references they already hold,
+ * only the writer turns it into text.
+ */
+class AccessLogEvent {
+    long timestamp;
+    String method;
+    String route;
+    String uri;
+    String query;
+    int status;
+    long userId;
+    long durationMicros;
+    int queries;
+    String error;
+
+    void set(long timestamp, String method, String route, String uri, String query, int status, long userId,
+             long durationMicros, int queries, String error) {
+        this.timestamp = timestamp;
+        this.method = method;
+        this.route = route;
+        this.uri = uri;
+        this.query = query;
+        this.status = status;
+        this.userId = userId;
+        this.durationMicros = durationMicros;
+        this.queries = queries;
+        this.error = error;
+    }
+
+    // drops the references, so drained slots don't keep request strings alive
+    void clear() {
+        set(0, null, null, null, null, 0, 0, 0, 0, null);
+    }
+}
@@ -0,0 +1,55 @@
+package ru.practicum.shareit.accesslog;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.practicum.shareit.metrics.QueryCountInspector;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records every handled request in the access log, including requests refused by other interceptors.
+ */
+@RequiredArgsConstructor
+public class AccessLogInterceptor implements HandlerInterceptor {
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+    private static final String START_ATTRIBUTE = AccessLogInterceptor.class.getName() + ".start";
+
+    private final AccessLog accessLog;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // async dispatches of a streamed response pass here again, the request started with the first one
+        if (request.getAttribute(START_ATTRIBUTE) == null) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+
+        accessLog.record(System.currentTimeMillis(), request.getMethod(), route == null ? null : route.toString(),
+                request.getRequestURI(), request.getQueryString(), response.getStatus(), userId(request),
+                start == null ? 0 : TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - (Long) start),
+                QueryCountInspector.get(), ex == null ? null : ex.getClass().getName());
+    }
+
+    private static long userId(HttpServletRequest request) {
+        String header = request.getHeader(USER_HEADER);
+
+        if (header == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(header);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package ru.practicum.shareit.accesslog;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded multi-producer single-consumer queue over preallocated events.
+ * Every slot carries a sequence: a producer may fill the slot when it equals the claimed position and hands
+ * the slot over by moving it one past, the consumer gives it back for the next lap by moving it a capacity on.
+ * Claiming never blocks, a full buffer refuses the event.
+ */
+class AccessLogRingBuffer {
+    private final AccessLogEvent[] events;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final int mask;
+    private volatile long tail;
+
+    AccessLogRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two");
+        }
+        events = new AccessLogEvent[capacity];
+        sequences = new AtomicLongArray(capacity);
+        mask = capacity - 1;
+
+        for (int i = 0; i < capacity; i++) {
+            events[i] = new AccessLogEvent();
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Returns the position of a free slot, or -1 if the writer hasn't drained it since the last lap.
+     */
+    long claim() {
+        while (true) {
+            long position = head.get();
+            long sequence = sequences.get((int) position & mask);
+
+            if (sequence == position) {
+                if (head.compareAndSet(position, position + 1)) {
+                    return position;
+                }
+            } else if (sequence < position) {
+                return -1;
+            }
+        }
+    }
+
+    AccessLogEvent get(long position) {
+        return events[(int) position & mask];
+    }
+
+    void publish(long position) {
+        sequences.set((int) position & mask, position + 1);
+    }
+
+    /**
+     * Returns the next published event or null, to be followed by release once it's been read.
+     * Called by the writer thread only.
+     */
+    AccessLogEvent poll() {
+        int index = (int) tail & mask;
+
+        return sequences.get(index) == tail + 1 ? events[index] : null;
+    }
+
+    void release() {
+        int index = (int) tail & mask;
+
+        events[index].clear();
+        sequences.set(index, tail + events.length);
+        tail++;
+    }
+
+    int capacity() {
+        return events.length;
+    }
+
+    long backlog() {
+        return head.get() - tail;
+    }
+}
@@ -1,8 +1,11 @@
 package ru.practicum.shareit.booking;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.springframework.data.domain.AfterDomainEventPublication;
+import org.springframework.data.domain.DomainEvents;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.user.User;
 
@@ -16,8 +19,13 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.PrePersist;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Transient;
+import javax.persistence.Version;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Getter
 @Setter
@@ -27,7 +35,8 @@ import java.time.LocalDateTime;
 public class Booking {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bookings_seq")
+    @SequenceGenerator(name = "bookings_seq", sequenceName = "bookings_seq", allocationSize = 50)
     @Column(name = "booking_id")
     private long id;
 
@@ -48,4 +57,29 @@ public class Booking {
     @Enumerated(value = EnumType.STRING)
     @Column(name = "status")
     private BookingStatus status;
+
+    @Version
+    @Column(name = "version")
+    private long version;
+
+    // set once the booking is persisted, until its save event is published
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @Transient
+    private boolean created;
+
+    @PrePersist
+    void markCreated() {
+        created = true;
+    }
+
+    @DomainEvents
+    List<BookingSaved> savedEvents() {
+        return List.of(new BookingSaved(this, created));
+    }
+
+    @AfterDomainEventPublication
+    void clearCreated() {
+        created = false;
+    }
 }
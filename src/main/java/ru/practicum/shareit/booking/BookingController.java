@@ -1,7 +1,8 @@
 package ru.practicum.shareit.booking;
 
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -11,52 +12,92 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
 import ru.practicum.shareit.booking.dto.BookingDtoIn;
+import ru.practicum.shareit.booking.dto.BookingDtoOut;
+import ru.practicum.shareit.bulk.BulkResult;
+import ru.practicum.shareit.idempotency.IdempotencyStore;
+import ru.practicum.shareit.pagination.CursorPage;
 
 import javax.validation.Valid;
 import java.util.List;
 
-@Slf4j
 @RestController
 @RequestMapping(path = "/bookings")
 @RequiredArgsConstructor
 public class BookingController {
 
     private final BookingService bookingService;
+    private final BookingMapper bookingMapper;
+    private final IdempotencyStore idempotencyStore;
+
+    @Value("${shareit.pagination.unpaged-size:1000}")
+    private int unpagedSize;
 
     @PostMapping
-    public Booking bookItem(@RequestHeader("X-Sharer-User-Id") long userId,
-                            @Valid @RequestBody BookingDtoIn bookingDto) {
-        log.info("Requested booking for item id = {} from user id = {}", bookingDto.getItemId(), userId);
-        return bookingService.create(bookingDto, userId);
+    public BookingDtoOut bookItem(@RequestHeader("X-Sharer-User-Id") long userId,
+                                  @RequestHeader(value = IdempotencyStore.HEADER, required = false)
+                                  String idempotencyKey,
+                                  @Valid @RequestBody BookingDtoIn bookingDto) {
+        return idempotencyStore.execute(idempotencyKey, userId, "POST /bookings", bookingDto,
+                () -> bookingMapper.toDto(bookingService.create(bookingDto, userId)));
+    }
+
+    @PostMapping("/bulk")
+    public List<BulkResult> bookItems(@RequestHeader("X-Sharer-User-Id") long userId,
+                                      @RequestBody List<BookingDtoIn> bookings) {
+        return bookingService.createAll(bookings, userId);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportBookings(@RequestHeader("X-Sharer-User-Id") long userId) {
+        return bookingService.exportBookings(userId);
+    }
+
+    @GetMapping("/owner/export")
+    public ResponseEntity<StreamingResponseBody> exportUserBookings(@RequestHeader("X-Sharer-User-Id") long userId) {
+        return bookingService.exportUserBookings(userId);
     }
 
     @GetMapping("/{bookingId}")
-    public Booking getBooking(@RequestHeader("X-Sharer-User-Id") long userId,
+    public BookingDtoOut getBooking(@RequestHeader("X-Sharer-User-Id") long userId,
                               @PathVariable long bookingId) {
-        log.info("Requested booking with id = {} from user id = {}", bookingId, userId);
         return bookingService.getBooking(userId, bookingId);
     }
 
     @PatchMapping("/{bookingId}")
-    public Booking checkRequest(@RequestHeader("X-Sharer-User-Id") long userId,
+    public BookingDtoOut checkRequest(@RequestHeader("X-Sharer-User-Id") long userId,
                                 @PathVariable long bookingId,
                                 @RequestParam boolean approved) {
-        log.info("Requested checking for booking id = {}", bookingId);
-        return bookingService.checkRequest(userId, bookingId, approved);
+        return bookingMapper.toDto(bookingService.checkRequest(userId, bookingId, approved));
+    }
+
+    @PatchMapping
+    public List<BulkResult> checkRequests(@RequestHeader("X-Sharer-User-Id") long userId,
+                                          @RequestBody List<BookingDecisionDto> decisions) {
+        return bookingService.checkRequests(userId, decisions);
     }
 
     @GetMapping
-    public List<Booking> getBookingsByStatus(@RequestHeader("X-Sharer-User-Id") long userId,
-                                             @RequestParam(defaultValue = "ALL") String state) {
-        log.info("Requested all bookings with state = {} of user id = {}", state, userId);
-        return bookingService.getBookingsByStatus(userId, state);
+    public ResponseEntity<List<BookingDtoOut>> getBookingsByStatus(
+            @RequestHeader("X-Sharer-User-Id") long userId,
+            @RequestParam(defaultValue = "ALL") String state,
+            @RequestParam(defaultValue = "0") int from,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor) {
+        return bookingService.getBookingsByStatus(userId, state, from, CursorPage.size(size, cursor, unpagedSize), cursor)
+                .toResponse();
     }
 
     @GetMapping("/owner")
-    public List<Booking> getUserBookings(@RequestHeader("X-Sharer-User-Id") long userId,
-                                         @RequestParam(defaultValue = "ALL") String state) {
-        log.info("Requested all bookings with {} state for owner = {}", state, userId);
-        return bookingService.getUserBookings(userId, state);
+    public ResponseEntity<List<BookingDtoOut>> getUserBookings(
+            @RequestHeader("X-Sharer-User-Id") long userId,
+            @RequestParam(defaultValue = "ALL") String state,
+            @RequestParam(defaultValue = "0") int from,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor) {
+        return bookingService.getUserBookings(userId, state, from, CursorPage.size(size, cursor, unpagedSize), cursor)
+                .toResponse();
     }
 }
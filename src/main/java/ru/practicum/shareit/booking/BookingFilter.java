@@ -0,0 +1,19 @@
+package ru.practicum.shareit.booking;
+
+import lombok.Builder;
+import lombok.Getter;
+import ru.practicum.shareit.pagination.PageCursor;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Builder
+public class BookingFilter {
+    private final Long bookerId;
+    private final Long ownerId;
+    private final BookingState state;
+    private final LocalDateTime now;
+    private final PageCursor after;
+    private final int from;
+    private final int size;
+}
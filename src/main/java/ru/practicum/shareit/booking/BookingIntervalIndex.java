@@ -0,0 +1,340 @@
+package ru.practicum.shareit.booking;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.exception.AvailabilityException;
+import ru.practicum.shareit.util.Transactions;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps waiting and approved bookings of every item as intervals ordered by start.
+ * An item is loaded from the database the first time it is booked, later changes are applied in memory.
+ * Ended intervals are dropped whenever the item is booked again, an item left without intervals is forgotten.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookingIntervalIndex {
+    private static final List<BookingStatus> ACTIVE_STATUSES = List.of(BookingStatus.WAITING, BookingStatus.APPROVED);
+
+    private final BookingRepository bookingStorage;
+    private final Map<Long, ItemIntervals> items = new ConcurrentHashMap<>();
+
+    /**
+     * Saves the booking if its time doesn't overlap other active bookings of the item.
+     * Bookings of the same item are reserved one at a time, so concurrent requests can't take the same slot.
+     */
+    public Booking reserve(Booking booking, Supplier<Booking> save) {
+        long itemId = booking.getItem().getId();
+        ItemIntervals intervals = lock(itemId);
+
+        try {
+            load(itemId, intervals);
+
+            if (intervals.overlaps(booking.getStart(), booking.getEnd(), booking.getId())) {
+                throw new AvailabilityException("Item is already booked for this time");
+            }
+
+            Booking saved = save.get();
+            Interval interval = new Interval(saved.getId(), saved.getStart(), saved.getEnd());
+            intervals.add(interval);
+            Transactions.afterRollback(() -> remove(itemId, interval.id));
+            return saved;
+        } finally {
+            unlock(itemId, intervals);
+        }
+    }
+
+    /**
+     * Refuses the booking if it overlaps another active booking of the item, the index itself is left as it is.
+     */
+    public void checkAvailable(Booking booking) {
+        long itemId = booking.getItem().getId();
+        ItemIntervals intervals = lock(itemId);
+
+        try {
+            load(itemId, intervals);
+
+            if (intervals.overlaps(booking.getStart(), booking.getEnd(), booking.getId())) {
+                throw new AvailabilityException("Item is already booked for this time");
+            }
+        } finally {
+            unlock(itemId, intervals);
+        }
+    }
+
+    /**
+     * Keeps the approved booking in the index, approving it is refused if it overlaps another active booking.
+     */
+    public void approve(Booking booking) {
+        long itemId = booking.getItem().getId();
+        ItemIntervals intervals = lock(itemId);
+
+        try {
+            load(itemId, intervals);
+
+            if (intervals.overlaps(booking.getStart(), booking.getEnd(), booking.getId())) {
+                throw new AvailabilityException("Item is already booked for this time");
+            }
+
+            Interval interval = new Interval(booking.getId(), booking.getStart(), booking.getEnd());
+
+            if (intervals.add(interval)) {
+                Transactions.afterRollback(() -> remove(itemId, interval.id));
+            }
+        } finally {
+            unlock(itemId, intervals);
+        }
+    }
+
+    /**
+     * Runs the action holding the item lock, so decisions on bookings of one item made by this node don't race.
+     * The lock is reentrant: reserving and approving inside the action take it again.
+     */
+    public <T> T withItemLock(long itemId, Supplier<T> action) {
+        ItemIntervals intervals = lock(itemId);
+
+        try {
+            return action.get();
+        } finally {
+            unlock(itemId, intervals);
+        }
+    }
+
+    /**
+     * Runs the action holding the locks of all the items. They are taken in id order, so batches sharing items
+     * can't deadlock. Items not loaded yet are loaded with one query for all of them.
+     */
+    public <T> T withItemLocks(Collection<Long> itemIds, Supplier<T> action) {
+        Map<Long, ItemIntervals> locked = new LinkedHashMap<>();
+
+        try {
+            for (long itemId : new TreeSet<>(itemIds)) {
+                locked.put(itemId, lock(itemId));
+            }
+            loadAll(locked);
+            return action.get();
+        } finally {
+            List<Map.Entry<Long, ItemIntervals>> unlocking = new ArrayList<>(locked.entrySet());
+
+            for (int i = unlocking.size() - 1; i >= 0; i--) {
+                unlock(unlocking.get(i).getKey(), unlocking.get(i).getValue());
+            }
+        }
+    }
+
+    public void release(Booking booking) {
+        long itemId = booking.getItem().getId();
+        long bookingId = booking.getId();
+
+        Transactions.afterCommit(() -> remove(itemId, bookingId));
+    }
+
+    /**
+     * Forgets the items once the transaction commits, for bookings deleted by the database cascade.
+     * An item booked again is loaded anew.
+     */
+    public void evict(Collection<Long> itemIds) {
+        Transactions.afterCommit(() -> itemIds.forEach(x -> {
+            ItemIntervals intervals = lock(x);
+
+            try {
+                items.remove(x, intervals);
+            } finally {
+                intervals.lock.unlock();
+            }
+        }));
+    }
+
+    int intervalCount(long itemId) {
+        ItemIntervals intervals = items.get(itemId);
+
+        return intervals == null ? 0 : intervals.byId.size();
+    }
+
+    boolean isIndexed(long itemId) {
+        return items.containsKey(itemId);
+    }
+
+    private void remove(long itemId, long bookingId) {
+        if (!items.containsKey(itemId)) {
+            return;
+        }
+
+        ItemIntervals intervals = lock(itemId);
+
+        try {
+            intervals.remove(bookingId);
+        } finally {
+            unlock(itemId, intervals);
+        }
+    }
+
+    /**
+     * Takes the lock of the item's intervals. They may have been forgotten while the lock was awaited,
+     * then the lock of the ones now in the map is taken instead.
+     */
+    private ItemIntervals lock(long itemId) {
+        while (true) {
+            ItemIntervals intervals = items.computeIfAbsent(itemId, x -> new ItemIntervals());
+
+            intervals.lock.lock();
+            if (items.get(itemId) == intervals) {
+                return intervals;
+            }
+            intervals.lock.unlock();
+        }
+    }
+
+    /**
+     * Forgets loaded intervals left empty before the outermost lock is released, the next booking loads them anew.
+     */
+    private void unlock(long itemId, ItemIntervals intervals) {
+        try {
+            if (intervals.loaded && intervals.byId.isEmpty() && intervals.lock.getHoldCount() == 1) {
+                items.remove(itemId, intervals);
+            }
+        } finally {
+            intervals.lock.unlock();
+        }
+    }
+
+    private void load(long itemId, ItemIntervals intervals) {
+        LocalDateTime now = LocalDateTime.now();
+
+        if (intervals.loaded) {
+            intervals.prune(now);
+            return;
+        }
+
+        bookingStorage.findByItemIdAndStatusInAndEndAfter(itemId, ACTIVE_STATUSES, now)
+                .forEach(x -> intervals.add(new Interval(x.getId(), x.getStart(), x.getEnd())));
+        intervals.loaded = true;
+    }
+
+    private void loadAll(Map<Long, ItemIntervals> locked) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> unloaded = locked.entrySet().stream()
+                .filter(x -> !x.getValue().loaded)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+
+        if (unloaded.isEmpty()) {
+            return;
+        }
+
+        bookingStorage.findActiveSlots(unloaded, ACTIVE_STATUSES, now)
+                .forEach(x -> locked.get(x.getItemId()).add(new Interval(x.getId(), x.getStart(), x.getEnd())));
+        unloaded.forEach(x -> locked.get(x).loaded = true);
+    }
+
+    /**
+     * Guarded by a lock rather than a monitor: loading and saving run JDBC calls while it is held,
+     * which would pin the carrier thread of a virtual thread.
+     */
+    private static class ItemIntervals {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final NavigableSet<Interval> intervals = new TreeSet<>(Comparator.comparing((Interval x) -> x.start)
+                .thenComparingLong(x -> x.id));
+        private final Map<Long, Interval> byId = new HashMap<>();
+        private final TreeMap<Duration, Integer> durations = new TreeMap<>();
+        private boolean loaded;
+
+        boolean add(Interval interval) {
+            if (byId.containsKey(interval.id)) {
+                return false;
+            }
+            byId.put(interval.id, interval);
+            durations.merge(interval.duration(), 1, Integer::sum);
+            return intervals.add(interval);
+        }
+
+        void remove(long id) {
+            Interval interval = byId.remove(id);
+
+            if (interval != null) {
+                intervals.remove(interval);
+                forgetDuration(interval);
+            }
+        }
+
+        /**
+         * Drops the intervals ended by now, as loading skips them. Every interval ends after it starts, so the ones
+         * starting at or after now are still running and the walk stops at the first of them.
+         */
+        void prune(LocalDateTime now) {
+            for (Iterator<Interval> iterator = intervals.iterator(); iterator.hasNext(); ) {
+                Interval interval = iterator.next();
+
+                if (!interval.start.isBefore(now)) {
+                    break;
+                }
+                if (!interval.end.isAfter(now)) {
+                    iterator.remove();
+                    byId.remove(interval.id);
+                    forgetDuration(interval);
+                }
+            }
+        }
+
+        /**
+         * Walks back from the last interval starting before the end. Bookings stored before the index existed may
+         * overlap each other, so the nearest one is not enough: the walk stops only at an interval starting no later
+         * than the longest current interval before the start, as neither it nor any earlier one can reach the start.
+         */
+        boolean overlaps(LocalDateTime start, LocalDateTime end, long excludedId) {
+            if (durations.isEmpty()) {
+                return false;
+            }
+
+            LocalDateTime reach = start.minus(durations.lastKey());
+
+            for (Interval interval : intervals.headSet(new Interval(Long.MIN_VALUE, end, end), false)
+                    .descendingSet()) {
+                if (!interval.start.isAfter(reach)) {
+                    return false;
+                }
+                if (interval.id != excludedId && interval.end.isAfter(start)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void forgetDuration(Interval interval) {
+            durations.computeIfPresent(interval.duration(), (x, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    private static class Interval {
+        private final long id;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+
+        Interval(long id, LocalDateTime start, LocalDateTime end) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+        }
+
+        Duration duration() {
+            return Duration.between(start, end);
+        }
+    }
+}
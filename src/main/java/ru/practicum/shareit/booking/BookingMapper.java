@@ -4,6 +4,9 @@ import org.springframework.stereotype.Component;
 import ru.practicum.shareit.booking.dto.BookingDtoIn;
 import ru.practicum.shareit.booking.dto.BookingDtoOut;
 import ru.practicum.shareit.booking.dto.BookingForOwnerDto;
+import ru.practicum.shareit.item.model.BookingPointer;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.User;
 
 @Component
 public class BookingMapper {
@@ -20,15 +23,14 @@ public class BookingMapper {
             return null;
         }
 
-        BookingDtoOut dto = new BookingDtoOut();
-        dto.setId(entity.getId());
-        dto.setItem(entity.getItem());
-        dto.setBooker(entity.getBooker());
-        dto.setStart(entity.getStart());
-        dto.setEnd(entity.getEnd());
-        dto.setStatus(entity.getStatus());
+        Item item = entity.getItem();
+        User owner = item.getOwner();
+        User booker = entity.getBooker();
 
-        return dto;
+        return new BookingDtoOut(entity.getId(), entity.getStart(), entity.getEnd(), entity.getStatus(),
+                item.getId(), item.getName(), item.getDescription(), item.getAvailable(),
+                owner.getId(), owner.getName(), owner.getEmail(),
+                booker.getId(), booker.getName(), booker.getEmail());
     }
 
     public BookingForOwnerDto toOwnerDto(Booking entity) {
@@ -43,4 +45,17 @@ public class BookingMapper {
                 .end(entity.getEnd())
                 .build();
     }
+
+    public BookingForOwnerDto toOwnerDto(BookingPointer pointer) {
+        if (pointer == null) {
+            return null;
+        }
+
+        return BookingForOwnerDto.builder()
+                .id(pointer.getBookingId())
+                .bookerId(pointer.getBookerId())
+                .start(pointer.getStart())
+                .end(pointer.getEnd())
+                .build();
+    }
 }
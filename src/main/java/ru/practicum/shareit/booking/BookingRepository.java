@@ -1,15 +1,100 @@
 package ru.practicum.shareit.booking;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import ru.practicum.shareit.booking.dto.BookingDtoOut;
 
+import javax.persistence.QueryHint;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+public interface BookingRepository extends JpaRepository<Booking, Long>, BookingRepositoryCustom {
+    @Query("select new ru.practicum.shareit.booking.dto.BookingDtoOut(b.id, b.start, b.end, b.status, " +
+            "i.id, i.name, i.description, i.available, o.id, o.name, o.email, u.id, u.name, u.email) " +
+            "from Booking b join b.item i join i.owner o join b.booker u " +
+            "where b.id = ?1")
+    Optional<BookingDtoOut> findDtoById(long id);
 
-public interface BookingRepository extends JpaRepository<Booking, Long> {
     List<Booking> findByBookerIdAndItemId(long userId, long itemId);
 
-    List<Booking> findByBookerId(long userId);
+    List<Booking> findByItemIdAndStatusInAndEndAfter(long itemId, Collection<BookingStatus> statuses,
+                                                     LocalDateTime end);
+
+    /**
+     * Finds the bookings of the items with one of the statuses ending after the time.
+     */
+    @Query("select b.item.id as itemId, b.id as id, b.booker.id as bookerId, b.start as start, b.end as end " +
+            "from Booking b where b.item.id in ?1 and b.status in ?2 and b.end > ?3")
+    List<BookingSlot> findActiveSlots(Collection<Long> itemIds, Collection<BookingStatus> statuses,
+                                      LocalDateTime time);
+
+    @Query("select b.item.id from Booking b where b.id = ?1")
+    Optional<Long> findItemIdById(long id);
+
+    @Query("select distinct b.item.id from Booking b where b.booker.id = ?1")
+    List<Long> findItemIdsByBookerId(long bookerId);
+
+    @Query("select distinct b.item.id from Booking b where b.id in ?1")
+    List<Long> findItemIdsByIdIn(Collection<Long> ids);
+
+    @Query("select b from Booking b join fetch b.item i join fetch i.owner where b.id in ?1")
+    List<Booking> findAllWithItemByIdIn(Collection<Long> ids);
+
+    /**
+     * Sets the status of the bookings not approved yet, bumping their versions like an entity update would.
+     * Returns the number of bookings changed.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("update Booking b set b.status = ?2, b.version = b.version + 1 " +
+            "where b.id in ?1 and b.status <> ru.practicum.shareit.booking.BookingStatus.APPROVED")
+    int updateStatusUnlessApproved(Collection<Long> ids, BookingStatus status);
+
+    @Query("select case when count(b) > 0 then true else false end from Booking b " +
+            "where b.item.id = ?1 and b.status = ?2 and b.id <> ?3 and b.start < ?5 and b.end > ?4")
+    boolean existsOverlapping(long itemId, BookingStatus status, long excludedId, LocalDateTime start,
+                              LocalDateTime end);
+
+    /**
+     * Finds the bookings of every item started before the time and ending last.
+     */
+    @Query("select b.item.id as itemId, b.id as id, b.booker.id as bookerId, b.start as start, b.end as end " +
+            "from Booking b where b.item.id in ?1 and b.status = ?2 and b.start < ?3 and b.end = " +
+            "(select max(o.end) from Booking o where o.item.id = b.item.id and o.status = ?2 and o.start < ?3)")
+    List<BookingSlot> findLastSlots(Collection<Long> itemIds, BookingStatus status, LocalDateTime time);
+
+    /**
+     * Finds the bookings of every item starting first after the time.
+     */
+    @Query("select b.item.id as itemId, b.id as id, b.booker.id as bookerId, b.start as start, b.end as end " +
+            "from Booking b where b.item.id in ?1 and b.status = ?2 and b.start > ?3 and b.start = " +
+            "(select min(o.start) from Booking o where o.item.id = b.item.id and o.status = ?2 and o.start > ?3)")
+    List<BookingSlot> findNextSlots(Collection<Long> itemIds, BookingStatus status, LocalDateTime time);
+
+    /**
+     * Finds the bookings of the items overlapping the period, ordered by start.
+     */
+    @Query("select b.item.id as itemId, b.id as id, b.booker.id as bookerId, b.start as start, b.end as end " +
+            "from Booking b where b.item.id in ?1 and b.status = ?2 and b.start < ?4 and b.end > ?3 " +
+            "order by b.start")
+    List<BookingSlot> findOverlappingSlots(Collection<Long> itemIds, BookingStatus status, LocalDateTime start,
+                                           LocalDateTime end);
 
-    List<Booking> findByItemIdIn(List<Long> allItemsByUser);
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select b from Booking b join fetch b.item i join fetch i.owner join fetch b.booker " +
+            "where b.booker.id = ?1 order by b.id")
+    Stream<Booking> streamByBookerId(long bookerId);
 
-    List<Booking> findByItemIdAndStatus(long itemId, BookingStatus approved);
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select b from Booking b join fetch b.item i join fetch i.owner join fetch b.booker " +
+            "where i.owner.id = ?1 order by b.id")
+    Stream<Booking> streamByOwnerId(long ownerId);
 }
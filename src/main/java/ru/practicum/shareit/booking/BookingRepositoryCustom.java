@@ -0,0 +1,13 @@
+package ru.practicum.shareit.booking;
+
+import ru.practicum.shareit.booking.dto.BookingDtoOut;
+
+import java.util.List;
+
+public interface BookingRepositoryCustom {
+    /**
+     * Returns bookings of a booker or of an owner's items in the given state, newest start first.
+     * A cursor continues after the booking it points to, otherwise the first rows are skipped by offset.
+     */
+    List<BookingDtoOut> findPage(BookingFilter filter);
+}
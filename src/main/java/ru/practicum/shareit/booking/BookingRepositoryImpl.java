@@ -0,0 +1,104 @@
+package ru.practicum.shareit.booking;
+
+import ru.practicum.shareit.booking.dto.BookingDtoOut;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.User;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BookingRepositoryImpl implements BookingRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Owner listings are read from owner_bookings by owner and start, the bookings of a booker from bookings.
+     * Only the rows of the page are joined with the booking, its item and users.
+     */
+    @Override
+    public List<BookingDtoOut> findPage(BookingFilter filter) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<BookingDtoOut> query = builder.createQuery(BookingDtoOut.class);
+        List<Predicate> predicates = new ArrayList<>();
+        From<?, Booking> booking;
+        Path<LocalDateTime> start;
+        Path<LocalDateTime> end;
+        Path<BookingStatus> status;
+        Path<Long> id;
+
+        if (filter.getOwnerId() != null) {
+            Root<OwnerBooking> row = query.from(OwnerBooking.class);
+            booking = row.join("booking");
+            start = row.get("start");
+            end = row.get("end");
+            status = row.get("status");
+            id = row.get("bookingId");
+            predicates.add(builder.equal(row.get("ownerId"), filter.getOwnerId()));
+        } else {
+            booking = query.from(Booking.class);
+            start = booking.get("start");
+            end = booking.get("end");
+            status = booking.get("status");
+            id = booking.get("id");
+        }
+
+        Join<Booking, Item> item = booking.join("item");
+        Join<Item, User> owner = item.join("owner");
+        Join<Booking, User> booker = booking.join("booker");
+        LocalDateTime now = filter.getNow();
+
+        if (filter.getBookerId() != null) {
+            predicates.add(builder.equal(booker.get("id"), filter.getBookerId()));
+        }
+
+        switch (filter.getState()) {
+            case CURRENT:
+                predicates.add(builder.lessThan(start, now));
+                predicates.add(builder.greaterThan(end, now));
+                break;
+            case PAST:
+                predicates.add(builder.lessThan(end, now));
+                break;
+            case FUTURE:
+                predicates.add(builder.greaterThan(start, now));
+                break;
+            case WAITING:
+                predicates.add(builder.equal(status, BookingStatus.WAITING));
+                break;
+            case REJECTED:
+                predicates.add(builder.equal(status, BookingStatus.REJECTED));
+                break;
+            default:
+                break;
+        }
+
+        if (filter.getAfter() != null) {
+            LocalDateTime afterStart = filter.getAfter().getTimeKey();
+            predicates.add(builder.or(builder.lessThan(start, afterStart),
+                    builder.and(builder.equal(start, afterStart), builder.lessThan(id, filter.getAfter().getId()))));
+        }
+
+        query.select(builder.construct(BookingDtoOut.class,
+                        id, start, end, booking.get("status"),
+                        item.get("id"), item.get("name"), item.get("description"), item.get("available"),
+                        owner.get("id"), owner.get("name"), owner.get("email"),
+                        booker.get("id"), booker.get("name"), booker.get("email")))
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(builder.desc(start), builder.desc(id));
+
+        return entityManager.createQuery(query)
+                .setFirstResult(filter.getAfter() == null ? filter.getFrom() : 0)
+                .setMaxResults(filter.getSize())
+                .getResultList();
+    }
+}
@@ -0,0 +1,14 @@
+package ru.practicum.shareit.booking;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Published by the booking repository for every saved booking, inside the saving transaction.
+ */
+@Getter
+@RequiredArgsConstructor
+public class BookingSaved {
+    private final Booking booking;
+    private final boolean created;
+}
@@ -1,80 +1,150 @@
 package ru.practicum.shareit.booking;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
 import ru.practicum.shareit.booking.dto.BookingDtoIn;
+import ru.practicum.shareit.booking.dto.BookingDtoOut;
+import ru.practicum.shareit.bulk.BulkImporter;
+import ru.practicum.shareit.bulk.BulkResult;
 import ru.practicum.shareit.exception.AvailabilityException;
+import ru.practicum.shareit.exception.BulkImportException;
 import ru.practicum.shareit.exception.ItemNotExistException;
 import ru.practicum.shareit.exception.ItemNotFoundException;
 import ru.practicum.shareit.exception.TimeValidationException;
 import ru.practicum.shareit.exception.UserNotFoundException;
+import ru.practicum.shareit.export.NdjsonExporter;
+import ru.practicum.shareit.item.ItemAvailabilityCache;
+import ru.practicum.shareit.item.ItemBookingSummaries;
 import ru.practicum.shareit.item.ItemRepository;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.pagination.CursorPage;
+import ru.practicum.shareit.pagination.PageCursor;
+import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.UserRepository;
+import ru.practicum.shareit.util.Retries;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
+@Timed(value = "shareit.service", percentiles = {0.5, 0.95, 0.99})
 public class BookingService {
     private final BookingRepository bookingStorage;
     private final ItemRepository itemStorage;
     private final UserRepository userStorage;
     private final BookingMapper bookingMapper;
+    private final BookingIntervalIndex intervalIndex;
+    private final ItemAvailabilityCache availabilityCache;
+    private final BulkImporter bulkImporter;
+    private final NdjsonExporter exporter;
+    private final TransactionTemplate transactionTemplate;
+    private final ItemBookingSummaries bookingSummaries;
+    private final OwnerBookingProjection ownerBookingProjection;
+
+    @Value("${shareit.booking.approval-attempts:3}")
+    private int approvalAttempts;
+    @Value("${shareit.bulk.max-size:10000}")
+    private int maxDecisions;
 
     @Transactional(rollbackFor = Exception.class)
     public Booking create(BookingDtoIn bookingDto, long userId) {
-        if (!userStorage.existsById(userId)) {
+        User booker = userStorage.findById(userId)
+                .orElseThrow(() -> new UserNotFoundException("No user with such was found"));
+        checkTime(bookingDto);
+        Item saved = itemStorage.findById(bookingDto.getItemId())
+                .orElseThrow(() -> new ItemNotFoundException("No item with such id was found"));
+        checkItem(saved, userId);
+
+        Booking booking = bookingMapper.toEntity(bookingDto);
+        booking.setItem(saved);
+        booking.setBooker(booker);
+        booking.setStatus(BookingStatus.WAITING);
+        return intervalIndex.reserve(booking, () -> bookingStorage.save(booking));
+    }
+
+    /**
+     * Creates waiting bookings of one booker, items are loaded with a single query.
+     * A booking overlapping an active one, including one created earlier in the same import, is rejected.
+     */
+    @Transactional
+    public List<BulkResult> createAll(List<BookingDtoIn> bookings, long userId) {
+        if (userStorage.findById(userId).isEmpty()) {
             throw new UserNotFoundException("No user with such was found");
         }
-        if (bookingDto.getStart() == null || bookingDto.getEnd() == null) {
-            throw new TimeValidationException("Start or end time can't be null");
-        }
-        if (bookingDto.getStart().isAfter(bookingDto.getEnd())) {
-            throw new TimeValidationException("Start time must be before end time");
-        }
-        if (bookingDto.getStart().equals(bookingDto.getEnd())) {
-            throw new TimeValidationException("End time must be after start time");
-        }
-        if (!itemStorage.existsById(bookingDto.getItemId())) {
-            throw new ItemNotFoundException("No item with such id was found");
-        }
 
-        Item saved = itemStorage.findById(bookingDto.getItemId()).orElseThrow();
+        Map<Long, Item> items = itemStorage.findAllById(bookings.stream()
+                        .filter(Objects::nonNull)
+                        .map(BookingDtoIn::getItemId)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
 
-        if (!saved.getAvailable()) {
-            throw new AvailabilityException("Item is not available");
-        }
-        if (saved.getOwner().getId() == userId) {
-            throw new ItemNotFoundException("You can't book your items");
-        }
+        return bulkImporter.importAll(bookings, items.values(), x -> {
+            checkTime(x);
+            Item item = items.get(x.getItemId());
 
-        Booking booking = bookingMapper.toEntity(bookingDto);
-        booking.setItem(itemStorage.findById(bookingDto.getItemId()).orElseThrow());
-        booking.setBooker(userStorage.findById(userId).orElseThrow());
-        booking.setStatus(BookingStatus.WAITING);
-        return bookingStorage.save(booking);
+            if (item == null) {
+                throw new ItemNotFoundException("No item with such id was found");
+            }
+            checkItem(item, userId);
+
+            Booking booking = bookingMapper.toEntity(x);
+            booking.setId(0);
+            booking.setItem(item);
+            booking.setBooker(userStorage.getReferenceById(userId));
+            booking.setStatus(BookingStatus.WAITING);
+            intervalIndex.checkAvailable(booking);
+            return booking;
+        }, x -> intervalIndex.reserve(x, () -> bookingStorage.save(x)), Booking::getId);
     }
 
-    @Transactional
+    /**
+     * Approves or rejects a waiting booking. Decisions on one item are serialized by the item lock on this node,
+     * across nodes booking and item summary versions make them conflict: the loser is retried and then sees
+     * the booking already decided or its slot already taken.
+     */
     public Booking checkRequest(long userId, long bookingId, boolean approved) {
+        long itemId = bookingStorage.findItemIdById(bookingId)
+                .orElseThrow(() -> new ItemNotFoundException("Booking with such id doesn't exist"));
 
-        if (!bookingStorage.existsById(bookingId)) {
-            throw new ItemNotFoundException("Booking with such id doesn't exist");
-        }
+        return intervalIndex.withItemLock(itemId, () -> decideRetrying(userId, bookingId, approved));
+    }
+
+    /**
+     * The decision as another node runs it: without the item lock of this node, only the versions guard it.
+     */
+    Booking decideRetrying(long userId, long bookingId, boolean approved) {
+        return Retries.onOptimisticLock(approvalAttempts,
+                () -> transactionTemplate.execute(status -> decide(userId, bookingId, approved)));
+    }
 
-        if (!userStorage.existsById(userId)) {
+    private Booking decide(long userId, long bookingId, boolean approved) {
+        Booking booking = bookingStorage.findById(bookingId)
+                .orElseThrow(() -> new ItemNotFoundException("Booking with such id doesn't exist"));
+
+        if (userStorage.findById(userId).isEmpty()) {
             throw new UserNotFoundException("User not found");
         }
 
-        Booking booking = bookingStorage.findById(bookingId).orElseThrow();
-        booking.setBooker(userStorage.getReferenceById(booking.getBooker().getId()));
-        booking.setItem(itemStorage.getReferenceById(booking.getItem().getId()));
-
         if (booking.getItem().getOwner().getId() != userId) {
             throw new UserNotFoundException("Only owner can change the status");
         }
@@ -84,101 +154,267 @@ public class BookingService {
         }
 
         if (approved) {
-            if (!booking.getItem().getAvailable()) {
-                booking.setStatus(BookingStatus.WAITING);
+            if (bookingStorage.existsOverlapping(booking.getItem().getId(), BookingStatus.APPROVED, bookingId,
+                    booking.getStart(), booking.getEnd())) {
+                throw new AvailabilityException("Item is already booked for this time");
             }
+            intervalIndex.approve(booking);
             booking.setStatus(BookingStatus.APPROVED);
+            bookingSummaries.approved(booking);
         } else {
             booking.setStatus(BookingStatus.REJECTED);
+            intervalIndex.release(booking);
         }
+        bookingStorage.save(booking);
+        availabilityCache.invalidate(booking.getItem().getId());
         return booking;
     }
 
-    public Booking getBooking(long userId, long bookingId) {
-        if (!userStorage.existsById(userId)) {
+    /**
+     * Applies decisions of an owner in one transaction: the bookings are loaded with one query and their statuses
+     * are set with one update per status. A decision that can't be applied is reported and skipped, including
+     * an approval overlapping a booking approved earlier in the batch. The items of all the bookings are locked
+     * on this node, as in checkRequest.
+     */
+    public List<BulkResult> checkRequests(long userId, List<BookingDecisionDto> decisions) {
+        if (decisions.isEmpty()) {
+            throw new BulkImportException("Nothing to decide");
+        }
+        if (decisions.size() > maxDecisions) {
+            throw new BulkImportException("No more than " + maxDecisions + " bookings can be decided at once");
+        }
+        if (userStorage.findById(userId).isEmpty()) {
             throw new UserNotFoundException("User not found");
         }
-        if (!bookingStorage.existsById(bookingId)) {
-            throw new ItemNotFoundException("This booking not found");
+
+        Set<Long> bookingIds = decisions.stream()
+                .filter(x -> x != null && x.getBookingId() != null)
+                .map(BookingDecisionDto::getBookingId)
+                .collect(Collectors.toSet());
+        List<Long> itemIds = bookingIds.isEmpty() ? List.of() : bookingStorage.findItemIdsByIdIn(bookingIds);
+
+        return intervalIndex.withItemLocks(itemIds, () -> Retries.onOptimisticLock(approvalAttempts,
+                () -> transactionTemplate.execute(status -> decideAll(userId, decisions, bookingIds))));
+    }
+
+    private List<BulkResult> decideAll(long userId, List<BookingDecisionDto> decisions, Set<Long> bookingIds) {
+        Map<Long, Booking> bookings = bookingIds.isEmpty() ? Map.of() : bookingStorage.findAllWithItemByIdIn(bookingIds)
+                .stream()
+                .collect(Collectors.toMap(Booking::getId, Function.identity()));
+        Map<Long, List<BookingSlot>> approvedSlots = findApprovedSlots(decisions, bookings);
+        Map<Long, List<Booking>> approvedInBatch = new HashMap<>();
+        Set<Long> decided = new HashSet<>();
+        List<Booking> approved = new ArrayList<>();
+        List<Booking> rejected = new ArrayList<>();
+        List<BulkResult> results = new ArrayList<>(decisions.size());
+
+        for (int i = 0; i < decisions.size(); i++) {
+            BookingDecisionDto decision = decisions.get(i);
+
+            try {
+                Booking booking = checkDecision(userId, decision, bookings, decided);
+
+                if (decision.getApproved()) {
+                    long itemId = booking.getItem().getId();
+                    List<Booking> batch = approvedInBatch.computeIfAbsent(itemId, x -> new ArrayList<>());
+
+                    if (approvedSlots.getOrDefault(itemId, List.of()).stream()
+                            .anyMatch(x -> overlaps(booking, x.getStart(), x.getEnd()))
+                            || batch.stream().anyMatch(x -> overlaps(booking, x.getStart(), x.getEnd()))) {
+                        throw new AvailabilityException("Item is already booked for this time");
+                    }
+                    intervalIndex.checkAvailable(booking);
+                    batch.add(booking);
+                    approved.add(booking);
+                } else {
+                    rejected.add(booking);
+                }
+                decided.add(booking.getId());
+                results.add(BulkResult.builder().index(i).id(booking.getId()).build());
+            } catch (BulkImportException | ItemNotFoundException | UserNotFoundException | ItemNotExistException
+                     | AvailabilityException e) {
+                results.add(BulkResult.builder().index(i).errors(List.of(e.getMessage())).build());
+            }
         }
 
-        Booking saveBooking = bookingStorage.findById(bookingId).orElseThrow();
+        updateStatus(approved, BookingStatus.APPROVED);
+        updateStatus(rejected, BookingStatus.REJECTED);
+        // the index and the summaries follow the approvals once they are written, so a retried batch has
+        // nothing to undo; the summaries are refreshed by queries, which then see the approvals
+        approved.forEach(intervalIndex::approve);
+        bookingSummaries.approved(approved);
+        rejected.forEach(intervalIndex::release);
+        Stream.concat(approved.stream(), rejected.stream())
+                .map(x -> x.getItem().getId())
+                .distinct()
+                .forEach(availabilityCache::invalidate);
+        return results;
+    }
 
-        if (saveBooking.getBooker().getId() != userId
-                && (saveBooking.getItem().getOwner().getId() != userId)) {
-            throw new ItemNotFoundException("Only owner/booker can info about booking");
+    private Booking checkDecision(long userId, BookingDecisionDto decision, Map<Long, Booking> bookings,
+                                  Set<Long> decided) {
+        if (decision == null || decision.getBookingId() == null || decision.getApproved() == null) {
+            throw new BulkImportException("Booking id and decision are required");
         }
 
-        return saveBooking;
+        Booking booking = bookings.get(decision.getBookingId());
+
+        if (booking == null) {
+            throw new ItemNotFoundException("Booking with such id doesn't exist");
+        }
+        if (booking.getItem().getOwner().getId() != userId) {
+            throw new UserNotFoundException("Only owner can change the status");
+        }
+        if (decided.contains(booking.getId())) {
+            throw new ItemNotExistException("This booking has been already decided in this batch");
+        }
+        if (booking.getStatus().equals(BookingStatus.APPROVED)) {
+            throw new ItemNotExistException("This booking has been already approved");
+        }
+        return booking;
     }
 
-    public List<Booking> getBookingsByStatus(long userId, String state) {
+    /**
+     * Finds the approved bookings of the items overlapping the period of all the approvals, with one query.
+     */
+    private Map<Long, List<BookingSlot>> findApprovedSlots(List<BookingDecisionDto> decisions,
+                                                           Map<Long, Booking> bookings) {
+        List<Booking> toApprove = decisions.stream()
+                .filter(x -> x != null && Boolean.TRUE.equals(x.getApproved()) && x.getBookingId() != null)
+                .map(x -> bookings.get(x.getBookingId()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
 
-        if (!userStorage.existsById(userId)) {
-            throw new ItemNotFoundException("User with such id doesn't exist");
+        if (toApprove.isEmpty()) {
+            return Map.of();
         }
 
-        List<Booking> bookings = bookingStorage.findByBookerId(userId);
-        return checkState(bookings, state);
+        LocalDateTime start = toApprove.stream().map(Booking::getStart).min(Comparator.naturalOrder()).orElseThrow();
+        LocalDateTime end = toApprove.stream().map(Booking::getEnd).max(Comparator.naturalOrder()).orElseThrow();
+
+        return bookingStorage.findOverlappingSlots(toApprove.stream()
+                                .map(x -> x.getItem().getId())
+                                .collect(Collectors.toSet()), BookingStatus.APPROVED, start, end)
+                .stream()
+                .collect(Collectors.groupingBy(BookingSlot::getItemId));
     }
 
-    public List<Booking> getUserBookings(long ownerId, String state) {
+    /**
+     * Bookings keep their loaded status in the persistence context: they aren't dirty, so the versions bumped
+     * by the update aren't checked against them at commit.
+     */
+    private void updateStatus(List<Booking> bookings, BookingStatus status) {
+        if (bookings.isEmpty()) {
+            return;
+        }
 
-        List<Item> itemByOwnerId = itemStorage.findByOwnerId(ownerId);
+        List<Long> ids = bookings.stream().map(Booking::getId).collect(Collectors.toList());
 
-        if (itemByOwnerId.isEmpty()) {
-            throw new ItemNotFoundException("No items have been found for this owner");
+        // a booking approved since it was loaded is skipped by the update, the batch is then retried
+        if (bookingStorage.updateStatusUnlessApproved(ids, status) != ids.size()) {
+            throw new ObjectOptimisticLockingFailureException(Booking.class, ids);
         }
+        ownerBookingProjection.statusChanged(ids, status);
+    }
 
-        List<Long> allItemsByUser = itemByOwnerId.stream()
-                .map(Item::getId)
-                .collect(Collectors.toList());
-        List<Booking> bookings = bookingStorage.findByItemIdIn(allItemsByUser);
-
-        return checkState(bookings, state);
+    private static boolean overlaps(Booking booking, LocalDateTime start, LocalDateTime end) {
+        return booking.getStart().isBefore(end) && booking.getEnd().isAfter(start);
     }
 
-    public List<Booking> checkState(List<Booking> bookings, String state) {
+    public BookingDtoOut getBooking(long userId, long bookingId) {
+        if (userStorage.findById(userId).isEmpty()) {
+            throw new UserNotFoundException("User not found");
+        }
+
+        BookingDtoOut saveBooking = bookingStorage.findDtoById(bookingId)
+                .orElseThrow(() -> new ItemNotFoundException("This booking not found"));
+
+        if (saveBooking.getBooker().getId() != userId
+                && (saveBooking.getItem().getOwner().getId() != userId)) {
+            throw new ItemNotFoundException("Only owner/booker can info about booking");
+        }
 
-        switch (state) {
-            case "ALL":
-                return bookings.stream()
-                        .sorted((Comparator.comparing(Booking::getStart)).reversed())
-                        .collect(Collectors.toList());
+        return saveBooking;
+    }
 
-            case "CURRENT":
-                return bookings.stream()
-                        .filter(x -> x.getStart().isBefore(LocalDateTime.now())
-                                && x.getEnd().isAfter(LocalDateTime.now()))
-                        .sorted((Comparator.comparing(Booking::getStart)).reversed())
-                        .collect(Collectors.toList());
+    /**
+     * Existence of the booker is only checked when the page comes back empty, so a listing is a single query.
+     */
+    public CursorPage<BookingDtoOut> getBookingsByStatus(long userId, String state, int from, int size,
+                                                         String cursor) {
+        BookingFilter filter = BookingFilter.builder()
+                .bookerId(userId)
+                .state(BookingState.from(state))
+                .now(LocalDateTime.now())
+                .after(PageCursor.decode(cursor))
+                .from(from)
+                .size(size)
+                .build();
+        CursorPage<BookingDtoOut> page = findPage(filter);
+
+        if (page.getContent().isEmpty() && userStorage.findById(userId).isEmpty()) {
+            throw new ItemNotFoundException("User with such id doesn't exist");
+        }
+        return page;
+    }
 
-            case "PAST":
-                return bookings.stream()
-                        .filter(x -> x.getEnd().isBefore(LocalDateTime.now()))
-                        .sorted((Comparator.comparing(Booking::getStart)).reversed())
-                        .collect(Collectors.toList());
+    public CursorPage<BookingDtoOut> getUserBookings(long ownerId, String state, int from, int size,
+                                                     String cursor) {
+        BookingFilter filter = BookingFilter.builder()
+                .ownerId(ownerId)
+                .state(BookingState.from(state))
+                .now(LocalDateTime.now())
+                .after(PageCursor.decode(cursor))
+                .from(from)
+                .size(size)
+                .build();
+        CursorPage<BookingDtoOut> page = findPage(filter);
+
+        if (page.getContent().isEmpty() && !itemStorage.existsByOwnerId(ownerId)) {
+            throw new ItemNotFoundException("No items have been found for this owner");
+        }
+        return page;
+    }
 
-            case "FUTURE":
-                return bookings.stream()
-                        .filter(x -> x.getStart().isAfter(LocalDateTime.now()))
-                        .sorted((Comparator.comparing(Booking::getStart)).reversed())
-                        .collect(Collectors.toList());
+    public ResponseEntity<StreamingResponseBody> exportBookings(long userId) {
+        if (userStorage.findById(userId).isEmpty()) {
+            throw new ItemNotFoundException("User with such id doesn't exist");
+        }
+        return exporter.export(() -> bookingStorage.streamByBookerId(userId), bookingMapper::toDto);
+    }
 
-            case "WAITING":
-                return bookings.stream()
-                        .filter(x -> x.getStatus().equals(BookingStatus.WAITING))
-                        .sorted((Comparator.comparing(Booking::getStart)).reversed())
-                        .collect(Collectors.toList());
+    public ResponseEntity<StreamingResponseBody> exportUserBookings(long ownerId) {
+        if (!itemStorage.existsByOwnerId(ownerId)) {
+            throw new ItemNotFoundException("No items have been found for this owner");
+        }
+        return exporter.export(() -> bookingStorage.streamByOwnerId(ownerId), bookingMapper::toDto);
+    }
 
-            case "REJECTED":
-                return bookings.stream()
-                        .filter(x -> x.getStatus().equals(BookingStatus.REJECTED))
-                        .sorted((Comparator.comparing(Booking::getStart)).reversed())
-                        .collect(Collectors.toList());
+    private void checkTime(BookingDtoIn bookingDto) {
+        if (bookingDto.getStart() == null || bookingDto.getEnd() == null) {
+            throw new TimeValidationException("Start or end time can't be null");
+        }
+        if (bookingDto.getStart().isAfter(bookingDto.getEnd())) {
+            throw new TimeValidationException("Start time must be before end time");
+        }
+        if (bookingDto.getStart().equals(bookingDto.getEnd())) {
+            throw new TimeValidationException("End time must be after start time");
+        }
+    }
 
-            default:
-                throw new ItemNotExistException("Unknown state: UNSUPPORTED_STATUS");
+    private void checkItem(Item item, long userId) {
+        if (!item.getAvailable()) {
+            throw new AvailabilityException("Item is not available");
+        }
+        if (item.getOwner().getId() == userId) {
+            throw new ItemNotFoundException("You can't book your items");
         }
     }
+
+    private CursorPage<BookingDtoOut> findPage(BookingFilter filter) {
+        CursorPage.check(filter.getFrom(), filter.getSize());
+
+        return CursorPage.of(bookingStorage.findPage(filter), filter.getSize(),
+                x -> PageCursor.of(x.getStart(), x.getId()));
+    }
 }
@@ -0,0 +1,18 @@
+package ru.practicum.shareit.booking;
+
+import java.time.LocalDateTime;
+
+/**
+ * Time slot of a booking with the ids needed to point to it, read without loading the booking entity.
+ */
+public interface BookingSlot {
+    long getItemId();
+
+    long getId();
+
+    long getBookerId();
+
+    LocalDateTime getStart();
+
+    LocalDateTime getEnd();
+}
@@ -0,0 +1,79 @@
+package ru.practicum.shareit.booking;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.OneToOne;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+import java.time.LocalDateTime;
+
+/**
+ * Booking row of the owner booking listings, keyed by the owner of the booked item and ordered by start.
+ */
+@Getter
+@Entity
+@Table(name = "owner_bookings")
+@NoArgsConstructor
+public class OwnerBooking implements Persistable<Long> {
+
+    @Id
+    @Column(name = "booking_id")
+    private long bookingId;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "booking_id", insertable = false, updatable = false)
+    private Booking booking;
+
+    @Column(name = "owner_id")
+    private long ownerId;
+
+    @Enumerated(value = EnumType.STRING)
+    @Column(name = "status")
+    private BookingStatus status;
+
+    @Column(name = "start_date")
+    private LocalDateTime start;
+
+    @Column(name = "end_date")
+    private LocalDateTime end;
+
+    // the id is the booking id, so the repository can't tell a new row by it
+    @Transient
+    private boolean created;
+
+    public OwnerBooking(Booking booking) {
+        this.bookingId = booking.getId();
+        this.ownerId = booking.getItem().getOwner().getId();
+        this.status = booking.getStatus();
+        this.start = booking.getStart();
+        this.end = booking.getEnd();
+        this.created = true;
+    }
+
+    @Override
+    public Long getId() {
+        return bookingId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return created;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markStored() {
+        created = false;
+    }
+}
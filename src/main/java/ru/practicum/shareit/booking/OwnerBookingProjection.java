@@ -0,0 +1,35 @@
+package ru.practicum.shareit.booking;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * Keeps owner_bookings in step with bookings. Rows are written in the transaction saving the booking,
+ * so listings never see a booking without its row. Only the status of a booking changes after it is created.
+ */
+@Component
+@RequiredArgsConstructor
+public class OwnerBookingProjection {
+    private final OwnerBookingRepository ownerBookingStorage;
+
+    @EventListener
+    public void onSaved(BookingSaved event) {
+        Booking booking = event.getBooking();
+
+        if (event.isCreated()) {
+            ownerBookingStorage.save(new OwnerBooking(booking));
+        } else {
+            ownerBookingStorage.updateStatus(booking.getId(), booking.getStatus());
+        }
+    }
+
+    /**
+     * Follows statuses set by a bulk update, which doesn't publish save events.
+     */
+    public void statusChanged(Collection<Long> bookingIds, BookingStatus status) {
+        ownerBookingStorage.updateStatus(bookingIds, status);
+    }
+}
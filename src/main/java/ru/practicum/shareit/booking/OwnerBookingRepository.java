@@ -0,0 +1,19 @@
+package ru.practicum.shareit.booking;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+@Repository
+public interface OwnerBookingRepository extends JpaRepository<OwnerBooking, Long> {
+    @Modifying
+    @Query("update OwnerBooking o set o.status = ?2 where o.bookingId = ?1")
+    int updateStatus(long bookingId, BookingStatus status);
+
+    @Modifying
+    @Query("update OwnerBooking o set o.status = ?2 where o.bookingId in ?1")
+    int updateStatus(Collection<Long> bookingIds, BookingStatus status);
+}
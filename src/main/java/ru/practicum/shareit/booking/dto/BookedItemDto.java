@@ -0,0 +1,18 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+import ru.practicum.shareit.user.dto.UserDto;
+
+/**
+ * Item as it is shown inside a booking, with its owner.
+ */
+@Getter
+@Builder
+public class BookedItemDto {
+    private final long id;
+    private final String name;
+    private final String description;
+    private final UserDto owner;
+    private final Boolean available;
+}
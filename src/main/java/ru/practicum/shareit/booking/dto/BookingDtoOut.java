@@ -1,20 +1,42 @@
 package ru.practicum.shareit.booking.dto;
 
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 import ru.practicum.shareit.booking.BookingStatus;
-import ru.practicum.shareit.item.model.Item;
-import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.dto.UserDto;
 
 import java.time.LocalDateTime;
 
 @Getter
 @Setter
+@NoArgsConstructor
 public class BookingDtoOut {
     private long id;
     private LocalDateTime start;
     private LocalDateTime end;
-    private Item item;
-    private User booker;
+    private BookedItemDto item;
+    private UserDto booker;
     private BookingStatus status;
+
+    /**
+     * Constructor projection, lets a single join query build the booking with its item, owner and booker.
+     */
+    public BookingDtoOut(long id, LocalDateTime start, LocalDateTime end, BookingStatus status,
+                         long itemId, String itemName, String itemDescription, Boolean itemAvailable,
+                         long ownerId, String ownerName, String ownerEmail,
+                         long bookerId, String bookerName, String bookerEmail) {
+        this.id = id;
+        this.start = start;
+        this.end = end;
+        this.status = status;
+        this.item = BookedItemDto.builder()
+                .id(itemId)
+                .name(itemName)
+                .description(itemDescription)
+                .owner(UserDto.builder().id(ownerId).name(ownerName).email(ownerEmail).build())
+                .available(itemAvailable)
+                .build();
+        this.booker = UserDto.builder().id(bookerId).name(bookerName).email(bookerEmail).build();
+    }
 }
@@ -0,0 +1,140 @@
+package ru.practicum.shareit.bulk;
+
+import org.hibernate.LockOptions;
+import org.hibernate.Session;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.exception.BulkImportException;
+import ru.practicum.shareit.exception.UpdateConflictException;
+
+import javax.persistence.EntityManager;
+import javax.persistence.OptimisticLockException;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceException;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Validates and saves records one by one, flushing them in chunks of the JDBC batch size.
+ * Ids come from pooled sequences, so every flush is sent to the database as batched inserts.
+ * A record failing bean validation or the conversion is reported and skipped, the others are still saved.
+ * The conversion pre-checks everything the database would refuse, so a flush failing on a version or a constraint
+ * can only come from a concurrent change: it fails the whole import and its transaction with a conflict, the results
+ * never name uncommitted rows. Other failures are passed on as they are.
+ */
+@Component
+public class BulkImporter {
+    private final Validator validator;
+    private final int batchSize;
+    private final int maxSize;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public BulkImporter(Validator validator,
+                        @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize,
+                        @Value("${shareit.bulk.max-size:10000}") int maxSize) {
+        this.validator = validator;
+        this.batchSize = batchSize;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Must be called inside a transaction. The conversion throws to reject a record, the save must not throw
+     * for a record the conversion accepted. Entities are cleared from the persistence context after every chunk.
+     */
+    public <T, E> List<BulkResult> importAll(List<T> records, Function<T, E> convert, UnaryOperator<E> save,
+                                             ToLongFunction<E> id) {
+        return importAll(records, List.of(), convert, save, id);
+    }
+
+    /**
+     * Imports records referencing shared entities loaded before the import, such as the items of bookings.
+     * They are attached again after every chunk is cleared, without reading them, so the conversion can keep
+     * setting them on records. The import must not change them.
+     */
+    public <T, E> List<BulkResult> importAll(List<T> records, Collection<?> shared, Function<T, E> convert,
+                                             UnaryOperator<E> save, ToLongFunction<E> id) {
+        if (records.isEmpty()) {
+            throw new BulkImportException("Nothing to import");
+        }
+        if (records.size() > maxSize) {
+            throw new BulkImportException("No more than " + maxSize + " records can be imported at once");
+        }
+
+        List<BulkResult> results = new ArrayList<>(records.size());
+        int pending = 0;
+
+        for (int i = 0; i < records.size(); i++) {
+            T record = records.get(i);
+
+            if (record == null) {
+                results.add(rejected(i, List.of("Record is empty")));
+                continue;
+            }
+
+            Set<ConstraintViolation<T>> violations = validator.validate(record);
+
+            if (!violations.isEmpty()) {
+                results.add(rejected(i, violations.stream()
+                        .map(x -> x.getPropertyPath() + " " + x.getMessage())
+                        .sorted()
+                        .collect(Collectors.toList())));
+                continue;
+            }
+
+            E entity;
+
+            try {
+                entity = convert.apply(record);
+            } catch (RuntimeException e) {
+                results.add(rejected(i, List.of(String.valueOf(e.getMessage()))));
+                continue;
+            }
+
+            E saved = save.apply(entity);
+            results.add(BulkResult.builder().index(i).id(id.applyAsLong(saved)).build());
+
+            if (++pending == batchSize) {
+                flush(shared);
+                pending = 0;
+            }
+        }
+        flush(shared);
+        return results;
+    }
+
+    private void flush(Collection<?> shared) {
+        try {
+            entityManager.flush();
+        } catch (OptimisticLockException e) {
+            throw conflict(e);
+        } catch (PersistenceException e) {
+            if (e.getCause() instanceof ConstraintViolationException) {
+                throw conflict(e);
+            }
+            throw e;
+        }
+        entityManager.clear();
+
+        Session session = entityManager.unwrap(Session.class);
+        shared.forEach(x -> session.buildLockRequest(LockOptions.NONE).lock(x));
+    }
+
+    private static UpdateConflictException conflict(PersistenceException e) {
+        return new UpdateConflictException("Nothing was imported, a record conflicts with data changed meanwhile", e);
+    }
+
+    private static BulkResult rejected(int index, List<String> errors) {
+        return BulkResult.builder().index(index).errors(errors).build();
+    }
+}
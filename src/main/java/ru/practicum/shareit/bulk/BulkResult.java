@@ -0,0 +1,19 @@
+package ru.practicum.shareit.bulk;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Outcome of one record of a bulk import: the id of the created entity or the reasons it was rejected.
+ */
+@Getter
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkResult {
+    private final int index;
+    private final Long id;
+    private final List<String> errors;
+}
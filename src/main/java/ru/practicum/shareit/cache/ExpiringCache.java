@@ -0,0 +1,158 @@
+package ru.practicum.shareit.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import ru.practicum.shareit.util.Transactions;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of values by id with LRU size bound and time-to-live, the store behind
+ * the item availability cache. Users and items are cached by the Hibernate second-level cache instead.
+ * Cached values are shared between requests and must be treated as read-only.
+ */
+public class ExpiringCache<V> {
+    private final String name;
+    private final boolean enabled;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<Long, Entry<V>> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private long generation;
+
+    public ExpiringCache(String name, boolean enabled, int maxSize, Duration ttl) {
+        this.name = name;
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry<V>> eldest) {
+                if (size() > ExpiringCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value or loads it. Absent values are not cached.
+     * A load that overlaps an invalidation is returned but not stored, so it can't bring back a stale row.
+     */
+    public Optional<V> get(long id, Function<Long, Optional<V>> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+
+        long loadGeneration;
+
+        synchronized (entries) {
+            Entry<V> entry = entries.get(id);
+
+            if (entry != null) {
+                if (System.nanoTime() - entry.expiresAt < 0) {
+                    hits.incrementAndGet();
+                    return Optional.of(entry.value);
+                }
+                entries.remove(id);
+                evictions.incrementAndGet();
+            }
+            loadGeneration = generation;
+        }
+
+        misses.incrementAndGet();
+        Optional<V> loaded = loader.apply(id);
+
+        loaded.ifPresent(value -> {
+            synchronized (entries) {
+                if (generation == loadGeneration) {
+                    entries.put(id, new Entry<>(value, System.nanoTime() + ttlNanos));
+                }
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * Drops the value now and once more after the current transaction commits.
+     */
+    public void invalidate(long id) {
+        remove(id);
+        Transactions.afterCommit(() -> remove(id));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Registers hit, miss and eviction counters and the size gauge, tagged with the cache name.
+     */
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("shareit.cache.gets", this, ExpiringCache::getHitCount)
+                .description("Cache lookups served from the cache")
+                .tags("cache", name, "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("shareit.cache.gets", this, ExpiringCache::getMissCount)
+                .description("Cache lookups that had to load")
+                .tags("cache", name, "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("shareit.cache.evictions", this, ExpiringCache::getEvictionCount)
+                .description("Entries evicted for size or expiry")
+                .tag("cache", name)
+                .register(registry);
+        Gauge.builder("shareit.cache.size", this, ExpiringCache::size)
+                .description("Entries in the cache")
+                .tag("cache", name)
+                .register(registry);
+    }
+
+    private void remove(long id) {
+        synchronized (entries) {
+            generation++;
+            entries.remove(id);
+        }
+    }
+
+    private static class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
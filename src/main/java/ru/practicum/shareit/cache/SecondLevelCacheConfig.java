@@ -0,0 +1,87 @@
+package ru.practicum.shareit.cache;
+
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Regions of the Hibernate second-level cache, kept on the heap of this node.
+ * Hibernate is handed the cache manager, so it never creates a region with default, unbounded settings.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+    public static final String USERS = "users";
+    public static final String ITEMS = "items";
+    public static final String COMMENTS = "comments";
+    public static final String COMMENTS_BY_ITEM = "comments-by-item";
+    private static final String DEFAULT_QUERY_RESULTS = "default-query-results-region";
+    private static final String UPDATE_TIMESTAMPS = "default-update-timestamps-region";
+    // one entry per table, they must outlive every cached query result
+    private static final int UPDATE_TIMESTAMPS_SIZE = 1000;
+
+    @Value("${shareit.l2-cache.users.max-entries:10000}")
+    private long userEntries;
+
+    @Value("${shareit.l2-cache.users.ttl:PT10M}")
+    private Duration userTtl;
+
+    @Value("${shareit.l2-cache.items.max-entries:10000}")
+    private long itemEntries;
+
+    @Value("${shareit.l2-cache.items.ttl:PT10M}")
+    private Duration itemTtl;
+
+    @Value("${shareit.l2-cache.comments.max-entries:50000}")
+    private long commentEntries;
+
+    @Value("${shareit.l2-cache.comments.ttl:PT10M}")
+    private Duration commentTtl;
+
+    @Value("${shareit.l2-cache.comments-by-item.max-entries:10000}")
+    private long commentsByItemEntries;
+
+    @Value("${shareit.l2-cache.comments-by-item.ttl:PT5M}")
+    private Duration commentsByItemTtl;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager() {
+        org.ehcache.config.Configuration configuration = ConfigurationBuilder.newConfigurationBuilder()
+                .withCache(USERS, region(userEntries, userTtl))
+                .withCache(ITEMS, region(itemEntries, itemTtl))
+                .withCache(COMMENTS, region(commentEntries, commentTtl))
+                .withCache(COMMENTS_BY_ITEM, region(commentsByItemEntries, commentsByItemTtl))
+                .withCache(DEFAULT_QUERY_RESULTS, region(commentsByItemEntries, commentsByItemTtl))
+                .withCache(UPDATE_TIMESTAMPS, CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class,
+                        Object.class, ResourcePoolsBuilder.heap(UPDATE_TIMESTAMPS_SIZE)))
+                .build();
+        EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching.getCachingProvider(
+                EhcacheCachingProvider.class.getName());
+
+        // a manager of its own, so application contexts started side by side don't share regions
+        return provider.getCacheManager(URI.create("shareit:" + UUID.randomUUID()), configuration);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager secondLevelCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+    }
+
+    private static CacheConfigurationBuilder<Object, Object> region(long maxEntries, Duration ttl) {
+        return CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
+                        ResourcePoolsBuilder.heap(maxEntries))
+                .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(ttl));
+    }
+}
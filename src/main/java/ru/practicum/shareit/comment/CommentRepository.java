@@ -1,11 +1,37 @@
 package ru.practicum.shareit.comment;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.cache.SecondLevelCacheConfig;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, Long> {
+    /**
+     * Results are kept in the query cache, any write to comments drops them.
+     */
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = SecondLevelCacheConfig.COMMENTS_BY_ITEM)})
     List<Comment> findByItemId(long id);
+
+    /**
+     * Comments are never changed or removed one by one, so their ids with the author versions tell whether
+     * the comments of the items changed.
+     */
+    @Query("select c.id as id, a.version as authorVersion from Comment c join c.author a "
+            + "where c.item.id in ?1 order by c.id")
+    List<CommentVersion> findVersionsByItemIdIn(Collection<Long> itemIds);
+
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = SecondLevelCacheConfig.COMMENTS_BY_ITEM)})
+    @Query("select c from Comment c join fetch c.author where c.item.id in ?1")
+    List<Comment> findByItemIdIn(List<Long> itemIds);
 }
@@ -0,0 +1,10 @@
+package ru.practicum.shareit.comment;
+
+/**
+ * Id of a comment with the version of its author, whose name the comment shows.
+ */
+public interface CommentVersion {
+    long getId();
+
+    long getAuthorVersion();
+}
@@ -0,0 +1,7 @@
+package ru.practicum.shareit.exception;
+
+public class BulkImportException extends RuntimeException {
+    public BulkImportException(String message) {
+        super(message);
+    }
+}
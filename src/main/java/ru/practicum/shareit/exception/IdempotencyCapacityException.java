@@ -0,0 +1,7 @@
+package ru.practicum.shareit.exception;
+
+public class IdempotencyCapacityException extends RuntimeException {
+    public IdempotencyCapacityException(String message) {
+        super(message);
+    }
+}
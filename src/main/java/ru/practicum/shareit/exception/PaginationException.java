@@ -0,0 +1,7 @@
+package ru.practicum.shareit.exception;
+
+public class PaginationException extends RuntimeException {
+    public PaginationException(String message) {
+        super(message);
+    }
+}
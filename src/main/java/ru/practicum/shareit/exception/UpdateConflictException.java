@@ -0,0 +1,11 @@
+package ru.practicum.shareit.exception;
+
+public class UpdateConflictException extends RuntimeException {
+    public UpdateConflictException(String message) {
+        super(message);
+    }
+
+    public UpdateConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,19 @@
+package ru.practicum.shareit.export;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+@Configuration
+public class ExportConfig implements WebMvcConfigurer {
+    @Value("${shareit.export.timeout:PT1H}")
+    private Duration timeout;
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(new ExportTimeoutInterceptor(timeout));
+    }
+}
@@ -0,0 +1,29 @@
+package ru.practicum.shareit.export;
+
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+/**
+ * Gives responses written by NdjsonExporter their own async timeout, other async requests keep the default one.
+ * Runs before the async processing starts, while the timeout can still be changed.
+ */
+class ExportTimeoutInterceptor implements CallableProcessingInterceptor {
+    private final long timeoutMillis;
+
+    ExportTimeoutInterceptor(Duration timeout) {
+        this.timeoutMillis = timeout.toMillis();
+    }
+
+    @Override
+    public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+        if (request instanceof AsyncWebRequest
+                && request.getAttribute(NdjsonExporter.EXPORT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null) {
+            ((AsyncWebRequest) request).setTimeout(timeoutMillis);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package ru.practicum.shareit.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Writes query results as newline delimited JSON while they are read from the database.
+ * Every row is detached once written, so neither the persistence context nor the response grows with the export.
+ */
+@Component
+@RequiredArgsConstructor
+public class NdjsonExporter {
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    // marks the request for ExportTimeoutInterceptor
+    static final String EXPORT_ATTRIBUTE = NdjsonExporter.class.getName() + ".export";
+    private static final int FLUSH_ROWS = 500;
+
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * The query runs in its own read-only transaction on the thread writing the response,
+     * which may take up to shareit.export.timeout.
+     */
+    public <T, R> ResponseEntity<StreamingResponseBody> export(Supplier<Stream<T>> query, Function<T, R> mapper) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        ObjectWriter writer = objectMapper.writer();
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+
+        if (request != null) {
+            request.setAttribute(EXPORT_ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+        }
+
+        StreamingResponseBody body = out -> transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<T> rows = query.get()) {
+                write(rows.iterator(), mapper, writer, new BufferedOutputStream(out));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private <T, R> void write(Iterator<T> rows, Function<T, R> mapper, ObjectWriter writer, OutputStream out)
+            throws IOException {
+        int written = 0;
+
+        while (rows.hasNext()) {
+            T row = rows.next();
+            out.write(writer.writeValueAsBytes(mapper.apply(row)));
+            out.write('\n');
+            entityManager.detach(row);
+
+            if (++written % FLUSH_ROWS == 0) {
+                out.flush();
+            }
+        }
+        out.flush();
+    }
+}
@@ -2,13 +2,19 @@ package ru.practicum.shareit.handler;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import ru.practicum.shareit.exception.AvailabilityException;
+import ru.practicum.shareit.exception.BulkImportException;
+import ru.practicum.shareit.exception.IdempotencyCapacityException;
+import ru.practicum.shareit.exception.IdempotencyKeyException;
 import ru.practicum.shareit.exception.ItemNotExistException;
 import ru.practicum.shareit.exception.ItemNotFoundException;
+import ru.practicum.shareit.exception.PaginationException;
 import ru.practicum.shareit.exception.TimeValidationException;
+import ru.practicum.shareit.exception.UpdateConflictException;
 import ru.practicum.shareit.exception.UserCreationException;
 import ru.practicum.shareit.exception.UserNotExistException;
 import ru.practicum.shareit.exception.UserNotFoundException;
@@ -19,14 +25,15 @@ import java.util.NoSuchElementException;
 @Slf4j
 public class ErrorHandler {
     @ExceptionHandler({ItemNotExistException.class, UserNotExistException.class, TimeValidationException.class,
-            AvailabilityException.class})
+            AvailabilityException.class, PaginationException.class, BulkImportException.class})
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse notFoundException(final Exception e) {
         log.warn(e.getMessage(), e);
         return new ErrorResponse(e.getMessage());
     }
 
-    @ExceptionHandler({UserCreationException.class})
+    @ExceptionHandler({UserCreationException.class, UpdateConflictException.class,
+            ObjectOptimisticLockingFailureException.class})
     @ResponseStatus(HttpStatus.CONFLICT)
     public ErrorResponse userCreationException(final Exception e) {
         log.warn(e.getMessage(), e);
@@ -39,4 +46,18 @@ public class ErrorHandler {
         log.warn(e.getMessage(), e);
         return new ErrorResponse(e.getMessage());
     }
+
+    @ExceptionHandler(IdempotencyKeyException.class)
+    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+    public ErrorResponse idempotencyKeyException(final Exception e) {
+        log.warn(e.getMessage(), e);
+        return new ErrorResponse(e.getMessage());
+    }
+
+    @ExceptionHandler(IdempotencyCapacityException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse idempotencyCapacityException(final Exception e) {
+        log.warn(e.getMessage(), e);
+        return new ErrorResponse(e.getMessage());
+    }
 }
@@ -0,0 +1,174 @@
+package ru.practicum.shareit.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.exception.IdempotencyCapacityException;
+import ru.practicum.shareit.exception.IdempotencyKeyException;
+import ru.practicum.shareit.exception.UpdateConflictException;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Remembers responses of creating requests by the Idempotency-Key header of their user, so a retried request
+ * gets the original response instead of running again. The first request with a key runs, concurrent repeats
+ * wait for its result. Only successful results are kept: after a failure the key may be used again.
+ * Keys are held in memory, bounded in number and expiring after the time-to-live. A full store makes room by
+ * forgetting the least recently used finished key; a key still in progress is never forgotten, as its repeat
+ * would run again, so a new key is refused while all of them are in progress.
+ */
+@Component
+public class IdempotencyStore {
+    public static final String HEADER = "Idempotency-Key";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final ObjectMapper objectMapper;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Duration waitTimeout;
+    private final Map<String, Entry> entries;
+
+    public IdempotencyStore(ObjectMapper objectMapper,
+                            @Value("${shareit.idempotency.max-size:10000}") int maxSize,
+                            @Value("${shareit.idempotency.ttl:PT1H}") Duration ttl,
+                            @Value("${shareit.idempotency.wait-timeout:PT30S}") Duration waitTimeout) {
+        this.objectMapper = objectMapper;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.waitTimeout = waitTimeout;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Runs the action once per key of the user and operation and returns its result to every repeat.
+     * A key repeated with a different request is refused.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, long userId, String operation, Object request, Supplier<T> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IdempotencyKeyException(HEADER + " must be from 1 to " + MAX_KEY_LENGTH + " characters long");
+        }
+
+        String scope = operation + ':' + userId + ':' + key;
+        String fingerprint = fingerprint(request);
+
+        while (true) {
+            Entry entry;
+            boolean first;
+
+            synchronized (entries) {
+                entry = entries.get(scope);
+
+                if (entry != null && System.nanoTime() - entry.expiresAt >= 0) {
+                    entries.remove(scope);
+                    entry = null;
+                }
+                first = entry == null;
+
+                if (first) {
+                    if (entries.size() >= maxSize && !evictFinished()) {
+                        throw new IdempotencyCapacityException("Too many requests with an " + HEADER
+                                + " are in progress");
+                    }
+                    entry = new Entry(fingerprint, System.nanoTime() + ttlNanos);
+                    entries.put(scope, entry);
+                }
+            }
+
+            if (!entry.fingerprint.equals(fingerprint)) {
+                throw new IdempotencyKeyException(HEADER + " was already used with a different request");
+            }
+            if (first) {
+                return run(scope, entry, action);
+            }
+
+            Object result = await(entry);
+
+            // null means the first request failed and released the key, the repeat competes for it again
+            if (result != null) {
+                return (T) result;
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Forgets the least recently used key that is finished or expired, called holding the lock of the entries.
+     */
+    private boolean evictFinished() {
+        long now = System.nanoTime();
+
+        for (Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext(); ) {
+            Entry entry = iterator.next();
+
+            if (entry.result.isDone() || now - entry.expiresAt >= 0) {
+                iterator.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private <T> T run(String scope, Entry entry, Supplier<T> action) {
+        try {
+            T result = action.get();
+            entry.result.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            synchronized (entries) {
+                entries.remove(scope, entry);
+            }
+            entry.result.complete(null);
+            throw e;
+        }
+    }
+
+    private Object await(Entry entry) {
+        try {
+            return entry.result.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new UpdateConflictException("A request with this " + HEADER + " is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UpdateConflictException("A request with this " + HEADER + " is still in progress");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            return objectMapper.writeValueAsString(request);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Request can't be serialized", e);
+        }
+    }
+
+    private static class Entry {
+        private final String fingerprint;
+        private final long expiresAt;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        Entry(String fingerprint, long expiresAt) {
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
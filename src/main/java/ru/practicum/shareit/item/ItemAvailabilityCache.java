@@ -0,0 +1,101 @@
+package ru.practicum.shareit.item;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.cache.ExpiringCache;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Caches free windows of items until a booking of the item is decided or deleted on this node.
+ * Decisions made on other nodes are seen once the entry expires. The least recently read items are evicted first.
+ * Requested ranges are widened to whole buckets, so ranges differing by moments, such as ones starting now,
+ * share the windows of one bucketed range and get them clipped. At most max-items items are kept with
+ * at most 64 bucketed ranges each.
+ */
+@Component
+public class ItemAvailabilityCache {
+    private static final int MAX_RANGES_PER_ITEM = 64;
+
+    private final ExpiringCache<Map<List<LocalDateTime>, List<ItemAvailabilityDto>>> items;
+    private final long bucketSeconds;
+
+    public ItemAvailabilityCache(@Value("${shareit.cache.enabled:true}") boolean enabled,
+                                 @Value("${shareit.availability-cache.max-items:10000}") int maxItems,
+                                 @Value("${shareit.availability-cache.ttl:PT1M}") Duration ttl,
+                                 @Value("${shareit.availability-cache.bucket:PT1H}") Duration bucket,
+                                 MeterRegistry meterRegistry) {
+        if (bucket.getSeconds() <= 0) {
+            throw new IllegalArgumentException("Availability cache bucket must be at least a second");
+        }
+        this.items = new ExpiringCache<>("availability", enabled, maxItems, ttl);
+        this.bucketSeconds = bucket.getSeconds();
+        items.bindTo(meterRegistry);
+    }
+
+    /**
+     * Returns cached windows or loads them for the bucketed range, clipped to the requested one.
+     * The item entry is taken before loading, so a load racing with invalidation ends up in a dropped entry.
+     */
+    public List<ItemAvailabilityDto> get(long itemId, LocalDateTime from, LocalDateTime to,
+                                         BiFunction<LocalDateTime, LocalDateTime, List<ItemAvailabilityDto>> loader) {
+        Map<List<LocalDateTime>, List<ItemAvailabilityDto>> ranges =
+                items.get(itemId, x -> Optional.of(new ConcurrentHashMap<>())).orElseThrow();
+        LocalDateTime bucketFrom = floor(from);
+        LocalDateTime bucketTo = to.equals(floor(to)) ? to : floor(to).plusSeconds(bucketSeconds);
+        List<LocalDateTime> key = List.of(bucketFrom, bucketTo);
+        List<ItemAvailabilityDto> windows = ranges.get(key);
+
+        if (windows == null) {
+            windows = loader.apply(bucketFrom, bucketTo);
+
+            if (ranges.size() < MAX_RANGES_PER_ITEM) {
+                ranges.put(key, windows);
+            }
+        }
+        return clip(windows, from, to);
+    }
+
+    public void invalidate(long itemId) {
+        items.invalidate(itemId);
+    }
+
+    /**
+     * Drops the items whose bookings were removed by the database cascade.
+     */
+    public void invalidate(Collection<Long> itemIds) {
+        itemIds.forEach(items::invalidate);
+    }
+
+    private LocalDateTime floor(LocalDateTime time) {
+        long seconds = time.toEpochSecond(ZoneOffset.UTC);
+
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(seconds, bucketSeconds) * bucketSeconds, 0, ZoneOffset.UTC);
+    }
+
+    private static List<ItemAvailabilityDto> clip(List<ItemAvailabilityDto> windows, LocalDateTime from,
+                                                  LocalDateTime to) {
+        List<ItemAvailabilityDto> clipped = new ArrayList<>(windows.size());
+
+        for (ItemAvailabilityDto window : windows) {
+            LocalDateTime start = window.getStart().isBefore(from) ? from : window.getStart();
+            LocalDateTime end = window.getEnd().isAfter(to) ? to : window.getEnd();
+
+            if (start.isBefore(end)) {
+                clipped.add(ItemAvailabilityDto.builder().start(start).end(end).build());
+            }
+        }
+        return clipped;
+    }
+}
@@ -0,0 +1,184 @@
+package ru.practicum.shareit.item;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingSlot;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.item.model.BookingPointer;
+import ru.practicum.shareit.item.model.ItemBookingSummary;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the last and the next approved booking of every item, so item cards don't scan the item bookings.
+ * Approvals update the summary in their transaction; once the next booking starts, the summary is recomputed
+ * on the first read. Summaries of items never read are not created.
+ * A read saves the recomputed summaries only when it runs outside a transaction, so it never takes a second
+ * connection; a read inside one returns them unsaved and leaves the saving to the next read.
+ */
+@Slf4j
+@Component
+public class ItemBookingSummaries {
+    private final ItemBookingSummaryRepository summaryStorage;
+    private final BookingRepository bookingStorage;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ItemBookingSummaries(ItemBookingSummaryRepository summaryStorage, BookingRepository bookingStorage) {
+        this.summaryStorage = summaryStorage;
+        this.bookingStorage = bookingStorage;
+    }
+
+    public ItemBookingSummary get(long itemId) {
+        return get(List.of(itemId)).get(itemId);
+    }
+
+    /**
+     * Returns summaries of the items, recomputing the missing and outdated ones with two queries for all of them.
+     */
+    public Map<Long, ItemBookingSummary> get(Collection<Long> itemIds) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, ItemBookingSummary> summaries = new HashMap<>();
+        List<ItemBookingSummary> outdated = new ArrayList<>();
+
+        for (ItemBookingSummary summary : summaryStorage.findAllById(itemIds)) {
+            if (summary.isCurrent(now)) {
+                summaries.put(summary.getItemId(), summary);
+            } else {
+                outdated.add(summary);
+            }
+        }
+
+        if (summaries.size() < itemIds.size()) {
+            Map<Long, Long> versions = outdated.stream()
+                    .collect(Collectors.toMap(ItemBookingSummary::getItemId, ItemBookingSummary::getVersion));
+            List<ItemBookingSummary> refreshed = itemIds.stream()
+                    .filter(x -> !summaries.containsKey(x))
+                    .map(x -> new ItemBookingSummary(x, versions.get(x)))
+                    .collect(Collectors.toList());
+
+            fill(refreshed, now);
+            if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+                save(refreshed);
+            }
+            refreshed.forEach(x -> summaries.put(x.getItemId(), x));
+        }
+        return summaries;
+    }
+
+    /**
+     * Drops the summaries of the items, for their bookings were removed behind Hibernate, by the cascade of
+     * a deleted user. The next read recomputes them.
+     */
+    public void forget(Collection<Long> itemIds) {
+        if (!itemIds.isEmpty()) {
+            summaryStorage.deleteAllByIdInBatch(itemIds);
+        }
+    }
+
+    public void approved(Booking booking) {
+        approved(List.of(booking));
+    }
+
+    /**
+     * Points the summaries of the booking items to the bookings that became the last or the next ones, with one
+     * lookup for all the items and one batch for the recomputed summaries.
+     * Runs in the approving transaction and bumps the version of every summary, or creates it, so approvals of
+     * an item on different nodes conflict on its summary: the loser fails with an optimistic lock. The item
+     * version is left to item updates, which don't conflict with approvals.
+     */
+    public void approved(Collection<Booking> bookings) {
+        if (bookings.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, List<Booking>> byItem = bookings.stream()
+                .collect(Collectors.groupingBy(x -> x.getItem().getId()));
+        Map<Long, ItemBookingSummary> found = summaryStorage.findAllById(byItem.keySet()).stream()
+                .collect(Collectors.toMap(ItemBookingSummary::getItemId, Function.identity()));
+        List<ItemBookingSummary> refreshed = new ArrayList<>();
+
+        found.values().forEach(x -> entityManager.lock(x, LockModeType.OPTIMISTIC_FORCE_INCREMENT));
+
+        byItem.forEach((itemId, approved) -> {
+            ItemBookingSummary summary = found.get(itemId);
+
+            if (summary == null || !summary.isCurrent(now)) {
+                refreshed.add(summary == null ? new ItemBookingSummary(itemId, null) : summary);
+            } else {
+                approved.forEach(x -> point(summary, x, now));
+            }
+        });
+
+        if (refreshed.isEmpty()) {
+            return;
+        }
+
+        // the approved statuses are flushed before the queries run, so the bookings are counted
+        fill(refreshed, now);
+
+        try {
+            summaryStorage.saveAll(refreshed);
+            summaryStorage.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw new ObjectOptimisticLockingFailureException(ItemBookingSummary.class, byItem.keySet(), e);
+        }
+    }
+
+    private static void point(ItemBookingSummary summary, Booking booking, LocalDateTime now) {
+        if (booking.getStart().isAfter(now)) {
+            if (summary.getNext() == null || booking.getStart().isBefore(summary.getNext().getStart())) {
+                summary.setNext(BookingPointer.of(booking));
+            }
+        } else if (summary.getLast() == null || booking.getEnd().isAfter(summary.getLast().getEnd())) {
+            summary.setLast(BookingPointer.of(booking));
+        }
+    }
+
+    private void fill(List<ItemBookingSummary> summaries, LocalDateTime now) {
+        List<Long> itemIds = summaries.stream()
+                .map(ItemBookingSummary::getItemId)
+                .collect(Collectors.toList());
+        Map<Long, BookingSlot> last = bySlotItem(bookingStorage.findLastSlots(itemIds, BookingStatus.APPROVED, now));
+        Map<Long, BookingSlot> next = bySlotItem(bookingStorage.findNextSlots(itemIds, BookingStatus.APPROVED, now));
+
+        for (ItemBookingSummary summary : summaries) {
+            summary.setLast(BookingPointer.of(last.get(summary.getItemId())));
+            summary.setNext(BookingPointer.of(next.get(summary.getItemId())));
+        }
+    }
+
+    /**
+     * Saves recomputed summaries in a transaction of the repository. Losing to a concurrent approval or read is
+     * fine: the computed summaries are still returned, and the read after the winner gets its summaries.
+     */
+    private void save(List<ItemBookingSummary> summaries) {
+        try {
+            summaryStorage.saveAll(summaries);
+        } catch (DataAccessException e) {
+            log.debug("Item booking summaries were saved concurrently: {}", e.getMessage());
+        }
+    }
+
+    private static Map<Long, BookingSlot> bySlotItem(List<BookingSlot> slots) {
+        return slots.stream()
+                .collect(Collectors.toMap(BookingSlot::getItemId, Function.identity(), (x, y) -> x));
+    }
+}
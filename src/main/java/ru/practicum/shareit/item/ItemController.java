@@ -1,7 +1,12 @@
 package ru.practicum.shareit.item;
 
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -12,27 +17,46 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.bulk.BulkResult;
 import ru.practicum.shareit.comment.CommentDto;
 import ru.practicum.shareit.comment.CommentMapper;
+import ru.practicum.shareit.idempotency.IdempotencyStore;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemForOwnerDto;
+import ru.practicum.shareit.pagination.CursorPage;
 
 import javax.validation.Valid;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
 @RequestMapping("/items")
 @RequiredArgsConstructor
-@Slf4j
 public class ItemController {
     private final ItemService itemService;
     private final ItemMapper itemMapper;
     private final CommentMapper commentMapper;
+    private final IdempotencyStore idempotencyStore;
+
+    @Value("${shareit.pagination.unpaged-size:1000}")
+    private int unpagedSize;
 
     @PostMapping
-    public ItemDto create(@RequestHeader("X-Sharer-User-Id") long userId, @Valid @RequestBody ItemDto itemDto) {
-        log.info("Requested item creation. ItemDto = {}", itemDto);
-        return itemService.create(itemMapper.toEntity(itemDto), userId);
+    public ItemDto create(@RequestHeader("X-Sharer-User-Id") long userId,
+                          @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+                          @Valid @RequestBody ItemDto itemDto) {
+        return idempotencyStore.execute(idempotencyKey, userId, "POST /items", itemDto,
+                () -> itemService.create(itemMapper.toEntity(itemDto), userId));
+    }
+
+    @PostMapping("/bulk")
+    public List<BulkResult> createAll(@RequestHeader("X-Sharer-User-Id") long userId,
+                                      @RequestBody List<ItemDto> items) {
+        return itemService.createAll(items, userId);
     }
 
     @PostMapping("/{itemId}/comment")
@@ -46,26 +70,60 @@ public class ItemController {
     public ItemDto update(@RequestHeader("X-Sharer-User-Id") long userId,
                           @PathVariable long itemId,
                           @RequestBody ItemDto itemDto) {
-        log.info("Requested item update. UserId = {}, itemId = {}, itemDto = {}", userId, itemId, itemDto);
         return itemService.update(userId, itemId, itemMapper.toEntity(itemDto));
     }
 
     @GetMapping("/{itemId}")
     public ItemForOwnerDto getById(@RequestHeader("X-Sharer-User-Id") long userId,
-                                   @PathVariable long itemId) {
-        log.info("Requested item by id = {}", itemId);
-        return itemService.getById(itemId, userId);
+                                   @PathVariable long itemId, WebRequest request) {
+        return itemService.getById(itemId, userId, request::checkNotModified);
+    }
+
+    /**
+     * Clients may keep the windows but revalidate them on every use: the tag is a digest of the windows,
+     * so a matching request is answered with 304.
+     */
+    @GetMapping("/{itemId}/availability")
+    public ResponseEntity<List<ItemAvailabilityDto>> getAvailability(@PathVariable long itemId,
+                                                                     @RequestParam
+                                                                     @DateTimeFormat(iso = ISO.DATE_TIME)
+                                                                     LocalDateTime from,
+                                                                     @RequestParam
+                                                                     @DateTimeFormat(iso = ISO.DATE_TIME)
+                                                                     LocalDateTime to) {
+        List<ItemAvailabilityDto> windows = itemService.getAvailability(itemId, from, to);
+        StringBuilder versions = new StringBuilder();
+
+        windows.forEach(x -> versions.append(x.getStart()).append('/').append(x.getEnd()).append(';'));
+
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag("availability-" + DigestUtils.md5DigestAsHex(versions.toString()
+                        .getBytes(StandardCharsets.UTF_8)))
+                .body(windows);
     }
 
     @GetMapping
-    public List<ItemForOwnerDto> getItemsByUserId(@RequestHeader("X-Sharer-User-Id") long userId) {
-        log.info("Requested all item by user id = {}", userId);
-        return itemService.getItemsByUserId(userId);
+    public ResponseEntity<List<ItemForOwnerDto>> getItemsByUserId(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                                  @RequestParam(required = false) Integer size,
+                                                                  @RequestParam(required = false) String cursor,
+                                                                  WebRequest request) {
+        CursorPage<ItemForOwnerDto> page = itemService.getItemsByUserId(userId, cursor,
+                CursorPage.size(size, cursor, unpagedSize), request::checkNotModified);
+
+        return page == null ? null : page.toResponse();
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportItems(@RequestHeader("X-Sharer-User-Id") long userId) {
+        return itemService.exportItems(userId);
     }
 
     @GetMapping("/search")
-    public List<ItemDto> findItems(@RequestParam(defaultValue = "Some text") String text) {
-        log.info("Requested items search by keywords = {}", text);
-        return itemService.findItems(text);
+    public ResponseEntity<List<ItemDto>> findItems(@RequestParam(defaultValue = "Some text") String text,
+                                                   @RequestParam(defaultValue = "0") int from,
+                                                   @RequestParam(defaultValue = "10") int size,
+                                                   @RequestParam(required = false) String cursor) {
+        return itemService.findItems(text, from, size, cursor).toResponse();
     }
 }
@@ -1,19 +1,55 @@
 package ru.practicum.shareit.item;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.practicum.shareit.item.model.Item;
 
+import javax.persistence.QueryHint;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface ItemRepository extends JpaRepository<Item, Long> {
 
+    // a name match outranks any description match, a whole word separated by spaces outranks part of a word
+    String MATCH_SCORE = "(case when upper(concat(' ', i.name, ' ')) like upper(concat('% ', :text, ' %')) then 8 " +
+            "when upper(i.name) like upper(concat('%', :text, '%')) then 4 else 0 end " +
+            "+ case when upper(concat(' ', i.description, ' ')) like upper(concat('% ', :text, ' %')) then 2 " +
+            "when upper(i.description) like upper(concat('%', :text, '%')) then 1 else 0 end)";
+
+    /**
+     * Finds available items by substring, ordered by match score and id, after the given score and id.
+     */
     @Query("select i from Item i " +
-            "where upper(i.name) like upper(concat('%', ?1, '%')) " +
-            "or upper(i.description) like upper(concat('%', ?1, '%'))")
-    List<Item> search(String text);
+            "where i.available = true " +
+            "and (upper(i.name) like upper(concat('%', :text, '%')) " +
+            "or upper(i.description) like upper(concat('%', :text, '%'))) " +
+            "and (" + MATCH_SCORE + " < :score or (" + MATCH_SCORE + " = :score and i.id > :id)) " +
+            "order by " + MATCH_SCORE + " desc, i.id")
+    List<Item> search(@Param("text") String text, @Param("score") int score, @Param("id") long id,
+                      Pageable pageable);
 
     List<Item> findByOwnerId(long ownerId);
+
+    @Query("select i.id as id, i.name as name, i.description as description, i.available as available " +
+            "from Item i where i.id > ?1 order by i.id")
+    List<ItemText> findTextsAfter(long id, Pageable pageable);
+
+    @Query("select i.id from Item i where i.owner.id = ?1")
+    List<Long> findIdsByOwnerId(long ownerId);
+
+    List<Item> findByOwnerIdAndIdGreaterThan(long ownerId, long id, Pageable pageable);
+
+    boolean existsByOwnerId(long ownerId);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select i from Item i where i.owner.id = ?1 order by i.id")
+    Stream<Item> streamByOwnerId(long ownerId);
 }
@@ -1,32 +1,57 @@
 package ru.practicum.shareit.item;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.shareit.booking.Booking;
 import ru.practicum.shareit.booking.BookingMapper;
 import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingSlot;
 import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.bulk.BulkImporter;
+import ru.practicum.shareit.bulk.BulkResult;
 import ru.practicum.shareit.comment.Comment;
 import ru.practicum.shareit.comment.CommentDto;
 import ru.practicum.shareit.comment.CommentMapper;
 import ru.practicum.shareit.comment.CommentRepository;
+import ru.practicum.shareit.comment.CommentVersion;
 import ru.practicum.shareit.exception.ItemNotExistException;
 import ru.practicum.shareit.exception.ItemNotFoundException;
+import ru.practicum.shareit.exception.PaginationException;
+import ru.practicum.shareit.exception.TimeValidationException;
 import ru.practicum.shareit.exception.UserNotFoundException;
+import ru.practicum.shareit.export.NdjsonExporter;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemForOwnerDto;
+import ru.practicum.shareit.item.model.BookingPointer;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemBookingSummary;
+import ru.practicum.shareit.item.search.ItemSearchEngine;
+import ru.practicum.shareit.pagination.CursorPage;
+import ru.practicum.shareit.pagination.PageCursor;
 import ru.practicum.shareit.user.UserRepository;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Timed(value = "shareit.service", percentiles = {0.5, 0.95, 0.99})
 public class ItemService {
     private final ItemRepository itemStorage;
     private final ItemMapper itemMapper;
@@ -35,27 +60,56 @@ public class ItemService {
     private final BookingMapper bookingMapper;
     private final CommentRepository commentStorage;
     private final CommentMapper commentMapper;
+    private final ItemSearchEngine searchEngine;
+    private final ItemAvailabilityCache availabilityCache;
+    private final BulkImporter bulkImporter;
+    private final NdjsonExporter exporter;
+    private final ItemBookingSummaries bookingSummaries;
+
+    @Value("${shareit.search.max-results:1000}")
+    private int maxSearchResults;
 
     @Transactional(rollbackFor = Exception.class)
     public ItemDto create(Item item, long userId) {
-        if (!userStorage.existsById(userId)) {
+        if (userStorage.findById(userId).isEmpty()) {
             throw new UserNotFoundException("User not found");
         }
 
-        item.setOwner(userStorage.findById(userId).orElseThrow());
+        item.setOwner(userStorage.getReferenceById(userId));
+
+        Item saved = itemStorage.save(item);
+        searchEngine.index(saved);
 
-        return itemMapper.toDto(itemStorage.save(item));
+        return itemMapper.toDto(saved);
 
     }
 
     @Transactional
-    public ItemDto update(long userId, long itemId, Item item) {
-        if (itemStorage.findById(itemId).orElseThrow().getOwner().getId() != userId) {
-            throw new UserNotFoundException("This item is owned by other user");
+    public List<BulkResult> createAll(List<ItemDto> items, long userId) {
+        if (userStorage.findById(userId).isEmpty()) {
+            throw new UserNotFoundException("User not found");
         }
 
+        return bulkImporter.importAll(items, x -> {
+            Item item = itemMapper.toEntity(x);
+            item.setId(0);
+            item.setOwner(userStorage.getReferenceById(userId));
+            return item;
+        }, x -> {
+            Item saved = itemStorage.save(x);
+            searchEngine.index(saved);
+            return saved;
+        }, Item::getId);
+    }
+
+    @Transactional
+    public ItemDto update(long userId, long itemId, Item item) {
         Item savedItem = itemStorage.findById(itemId).orElseThrow();
 
+        if (savedItem.getOwner().getId() != userId) {
+            throw new UserNotFoundException("This item is owned by other user");
+        }
+
         if (item.getAvailable() != null) {
             savedItem.setAvailable(item.getAvailable());
         }
@@ -66,55 +120,147 @@ public class ItemService {
             savedItem.setDescription(item.getDescription());
         }
 
-        savedItem.setOwner(userStorage.findById(userId).orElseThrow());
-        savedItem.setId(itemId);
+        Item updated = itemStorage.save(savedItem);
+        searchEngine.index(updated);
 
-        return itemMapper.toDto(itemStorage.save(savedItem));
+        return itemMapper.toDto(updated);
     }
 
     public ItemForOwnerDto getById(long itemId, long userId) {
-        Item item = itemStorage.findById(itemId).orElseThrow();
-        ItemForOwnerDto dto = itemMapper.toOwnerDto(item);
-        List<Booking> bookings = bookingStorage.findByItemIdAndStatus(itemId, BookingStatus.APPROVED);
+        return getById(itemId, userId, x -> false);
+    }
 
-        Booking lastBooking = bookings.stream()
-                .filter(x -> x.getEnd().isBefore(LocalDateTime.now()) ||
-                        ((x.getStart().isBefore(LocalDateTime.now())) && (x.getEnd().isAfter(LocalDateTime.now()))))
-                .max((Comparator.comparing(Booking::getEnd))).orElse(null);
+    /**
+     * Returns the item card, or null if the client already has it. The tag follows the item, its comments and
+     * their authors, for the owner also the bookings its summary points to. It is taken from the rows the card
+     * is built from, so a modified card reads each of them once.
+     */
+    public ItemForOwnerDto getById(long itemId, long userId, Predicate<String> notModified) {
+        Item item = itemStorage.findById(itemId)
+                .orElseThrow(() -> new ItemNotFoundException("No item with such id was found"));
+        ItemBookingSummary summary = bookingSummaries.get(itemId);
+        List<Comment> comments = commentStorage.findByItemId(itemId);
+        String tag = "item-" + itemId + "-" + item.getVersion() + "-" + commentsTagOf(comments);
 
-        Booking nextBooking = bookings.stream()
-                .filter(x -> x.getStart().isAfter(LocalDateTime.now()))
-                .min((Comparator.comparing(Booking::getStart))).orElse(null);
+        if (notModified.test(item.getOwner().getId() == userId ? tag + "-" + summaryTag(summary) : tag)) {
+            return null;
+        }
+        return toOwnerDto(item, summary, comments, userId);
+    }
 
-        dto.setLastBooking(item.getOwner().getId() == userId ? bookingMapper.toOwnerDto(lastBooking) : null);
-        dto.setNextBooking(item.getOwner().getId() == userId ? bookingMapper.toOwnerDto(nextBooking) : null);
-        dto.setComments(commentStorage.findByItemId(itemId).stream()
-                .map(commentMapper::toDto)
-                .collect(Collectors.toList()));
-        return dto;
+    public CursorPage<ItemForOwnerDto> getItemsByUserId(long userId, String cursor, int size) {
+        return getOwnerPage(userId, cursor, size, null);
+    }
+
+    /**
+     * Returns a page of the owner items, or null if the client already has it. The page tag is a digest of
+     * the versions the page is built from, so a matching page costs the items, their summaries and comment versions.
+     * Runs outside a transaction, so the summaries it recomputes are saved.
+     */
+    public CursorPage<ItemForOwnerDto> getItemsByUserId(long userId, String cursor, int size,
+                                                        Predicate<String> notModified) {
+        return getOwnerPage(userId, cursor, size, notModified);
     }
 
-    public List<ItemForOwnerDto> getItemsByUserId(long userId) {
-        return itemStorage.findByOwnerId(userId).stream()
-                .map(x -> getById(x.getId(), userId))
+    public ResponseEntity<StreamingResponseBody> exportItems(long userId) {
+        if (userStorage.findById(userId).isEmpty()) {
+            throw new UserNotFoundException("User not found");
+        }
+        return exporter.export(() -> itemStorage.streamByOwnerId(userId), itemMapper::toDto);
+    }
+
+    private CursorPage<ItemForOwnerDto> getOwnerPage(long userId, String cursor, int size,
+                                                     Predicate<String> notModified) {
+        List<Item> items = findOwnerPage(userId, cursor, size);
+        List<Long> itemIds = items.stream()
+                .map(Item::getId)
                 .collect(Collectors.toList());
+        Map<Long, ItemBookingSummary> summaries = bookingSummaries.get(itemIds);
+
+        if (notModified != null && notModified.test(itemsTag(items, itemIds, summaries))) {
+            return null;
+        }
+        if (items.isEmpty()) {
+            return CursorPage.empty();
+        }
+
+        Map<Long, List<Comment>> comments = commentStorage.findByItemIdIn(itemIds).stream()
+                .collect(Collectors.groupingBy(x -> x.getItem().getId()));
+
+        return CursorPage.of(items, size, x -> PageCursor.of(x.getId()))
+                .map(x -> toOwnerDto(x,
+                        summaries.get(x.getId()),
+                        comments.getOrDefault(x.getId(), Collections.emptyList()),
+                        userId));
     }
 
-    public List<ItemDto> findItems(String text) {
+    private String itemsTag(List<Item> items, List<Long> itemIds, Map<Long, ItemBookingSummary> summaries) {
+        StringBuilder versions = new StringBuilder();
+
+        for (Item item : items) {
+            versions.append(item.getId()).append(':').append(item.getVersion()).append(':')
+                    .append(summaryTag(summaries.get(item.getId()))).append(';');
+        }
+        versions.append(commentsTag(itemIds));
+
+        return "items-" + DigestUtils.md5DigestAsHex(versions.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Tags a summary by the bookings it points to rather than by its version, so an unsaved or recreated summary
+     * tags the card the same as the saved one.
+     */
+    private static String summaryTag(ItemBookingSummary summary) {
+        return pointerTag(summary.getLast()) + "." + pointerTag(summary.getNext());
+    }
+
+    private static String pointerTag(BookingPointer pointer) {
+        return pointer == null ? "0" : String.valueOf(pointer.getBookingId());
+    }
+
+    private String commentsTag(List<Long> itemIds) {
+        StringBuilder versions = new StringBuilder();
+
+        for (CommentVersion comment : commentStorage.findVersionsByItemIdIn(itemIds)) {
+            versions.append(comment.getId()).append(':').append(comment.getAuthorVersion()).append(';');
+        }
+        return DigestUtils.md5DigestAsHex(versions.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String commentsTagOf(List<Comment> comments) {
+        StringBuilder versions = new StringBuilder();
+
+        comments.stream()
+                .sorted(Comparator.comparing(Comment::getId))
+                .forEach(x -> versions.append(x.getId()).append(':').append(x.getAuthor().getVersion()).append(';'));
+        return DigestUtils.md5DigestAsHex(versions.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public CursorPage<ItemDto> findItems(String text, int from, int size, String cursor) {
+        CursorPage.check(from, size);
+        PageCursor after = PageCursor.decode(cursor);
+
+        // offsets cost memory in the ranking, deeper pages are reached with cursors
+        if (size > maxSearchResults || from > maxSearchResults - size) {
+            throw new PaginationException("Search results are limited to the first " + maxSearchResults
+                    + ", use the cursor to page further");
+        }
         if (text.isBlank() || text.isEmpty()) {
-            return Collections.emptyList();
+            return CursorPage.empty();
         }
 
-        List<Item> items = itemStorage.search(text.toLowerCase());
+        return searchEngine.search(text.toLowerCase(), after, from, size).map(itemMapper::toDto);
+    }
 
-        if (items.isEmpty()) {
-            return Collections.emptyList();
+    public List<ItemAvailabilityDto> getAvailability(long itemId, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new TimeValidationException("Start time must be before end time");
+        }
+        if (itemStorage.findById(itemId).isEmpty()) {
+            throw new ItemNotFoundException("No item with such id was found");
         }
 
-        return items.stream()
-                .filter(Item::getAvailable)
-                .map(itemMapper::toDto)
-                .collect(Collectors.toList());
+        return availabilityCache.get(itemId, from, to, (x, y) -> findFreeWindows(itemId, x, y));
     }
 
     public Comment addComment(long userId, long itemId, CommentDto commentDto) {
@@ -145,4 +291,46 @@ public class ItemService {
 
         return commentStorage.save(comment);
     }
+
+    private List<Item> findOwnerPage(long userId, String cursor, int size) {
+        CursorPage.check(0, size);
+        PageCursor after = PageCursor.decode(cursor);
+
+        return itemStorage.findByOwnerIdAndIdGreaterThan(userId, after == null ? 0 : after.getId(),
+                PageRequest.of(0, size, Sort.by("id")));
+    }
+
+    private List<ItemAvailabilityDto> findFreeWindows(long itemId, LocalDateTime from, LocalDateTime to) {
+        List<BookingSlot> bookings = bookingStorage.findOverlappingSlots(List.of(itemId), BookingStatus.APPROVED,
+                from, to);
+        List<ItemAvailabilityDto> windows = new ArrayList<>();
+        LocalDateTime freeFrom = from;
+
+        for (BookingSlot booking : bookings) {
+            if (booking.getStart().isAfter(freeFrom)) {
+                windows.add(ItemAvailabilityDto.builder().start(freeFrom).end(booking.getStart()).build());
+            }
+            if (booking.getEnd().isAfter(freeFrom)) {
+                freeFrom = booking.getEnd();
+            }
+        }
+        if (freeFrom.isBefore(to)) {
+            windows.add(ItemAvailabilityDto.builder().start(freeFrom).end(to).build());
+        }
+        return windows;
+    }
+
+    private ItemForOwnerDto toOwnerDto(Item item, ItemBookingSummary summary, List<Comment> comments,
+                                       long userId) {
+        ItemForOwnerDto dto = itemMapper.toOwnerDto(item);
+
+        if (item.getOwner().getId() == userId) {
+            dto.setLastBooking(bookingMapper.toOwnerDto(summary.getLast()));
+            dto.setNextBooking(bookingMapper.toOwnerDto(summary.getNext()));
+        }
+        dto.setComments(comments.stream()
+                .map(commentMapper::toDto)
+                .collect(Collectors.toList()));
+        return dto;
+    }
 }
@@ -0,0 +1,14 @@
+package ru.practicum.shareit.item;
+
+/**
+ * Searchable fields of an item, read for the search index without loading the item entity.
+ */
+public interface ItemText {
+    long getId();
+
+    String getName();
+
+    String getDescription();
+
+    boolean getAvailable();
+}
@@ -0,0 +1,13 @@
+package ru.practicum.shareit.item.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Builder
+public class ItemAvailabilityDto {
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+}
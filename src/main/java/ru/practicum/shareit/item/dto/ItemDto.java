@@ -7,6 +7,7 @@ import lombok.Setter;
 import javax.validation.constraints.AssertTrue;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
 
 @Getter
 @Setter
@@ -16,10 +17,12 @@ public class ItemDto {
 
     @NotNull
     @NotEmpty
+    @Size(max = 255)
     private final String name;
 
     @NotNull
     @NotEmpty
+    @Size(max = 512)
     private final String description;
 
     @NotNull
@@ -0,0 +1,39 @@
+package ru.practicum.shareit.item.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingSlot;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import java.time.LocalDateTime;
+
+@Getter
+@Embeddable
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingPointer {
+
+    @Column(name = "booking_id")
+    private Long bookingId;
+
+    @Column(name = "booker_id")
+    private Long bookerId;
+
+    @Column(name = "start_date")
+    private LocalDateTime start;
+
+    @Column(name = "end_date")
+    private LocalDateTime end;
+
+    public static BookingPointer of(Booking booking) {
+        return new BookingPointer(booking.getId(), booking.getBooker().getId(), booking.getStart(), booking.getEnd());
+    }
+
+    public static BookingPointer of(BookingSlot slot) {
+        return slot == null ? null : new BookingPointer(slot.getId(), slot.getBookerId(), slot.getStart(),
+                slot.getEnd());
+    }
+}
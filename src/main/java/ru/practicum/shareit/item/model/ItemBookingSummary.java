@@ -0,0 +1,60 @@
+package ru.practicum.shareit.item.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.AttributeOverride;
+import javax.persistence.AttributeOverrides;
+import javax.persistence.Column;
+import javax.persistence.Embedded;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Version;
+import java.time.LocalDateTime;
+
+/**
+ * Last and next approved booking of an item. It stays correct until the next booking starts.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "item_booking_summaries")
+@NoArgsConstructor
+public class ItemBookingSummary {
+
+    @Id
+    @Column(name = "item_id")
+    private long itemId;
+
+    @Embedded
+    @AttributeOverrides({
+            @AttributeOverride(name = "bookingId", column = @Column(name = "last_booking_id")),
+            @AttributeOverride(name = "bookerId", column = @Column(name = "last_booker_id")),
+            @AttributeOverride(name = "start", column = @Column(name = "last_start")),
+            @AttributeOverride(name = "end", column = @Column(name = "last_end"))})
+    private BookingPointer last;
+
+    @Embedded
+    @AttributeOverrides({
+            @AttributeOverride(name = "bookingId", column = @Column(name = "next_booking_id")),
+            @AttributeOverride(name = "bookerId", column = @Column(name = "next_booker_id")),
+            @AttributeOverride(name = "start", column = @Column(name = "next_start")),
+            @AttributeOverride(name = "end", column = @Column(name = "next_end"))})
+    private BookingPointer next;
+
+    // a wrapper, so a summary without version is persisted rather than merged
+    @Version
+    @Column(name = "version")
+    private Long version;
+
+    public ItemBookingSummary(long itemId, Long version) {
+        this.itemId = itemId;
+        this.version = version;
+    }
+
+    public boolean isCurrent(LocalDateTime now) {
+        return next == null || next.getStart().isAfter(now);
+    }
+}
@@ -0,0 +1,105 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.ItemText;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.pagination.CursorPage;
+import ru.practicum.shareit.pagination.PageCursor;
+import ru.practicum.shareit.util.Transactions;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Searches the in-memory trigram index. Until the index is loaded, searches are answered by the LIKE query,
+ * which ranks items the same way, so cursors of either engine continue on the other.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "shareit.search.engine", havingValue = "ngram", matchIfMissing = true)
+public class IndexedItemSearchEngine implements ItemSearchEngine {
+    // only a chunk of rows is held while loading, not the whole table
+    private static final int LOAD_CHUNK = 1000;
+
+    private final ItemRepository itemStorage;
+    private final ItemSearchEngine fallback;
+    private final NgramItemIndex index = new NgramItemIndex();
+    private volatile boolean ready;
+
+    public IndexedItemSearchEngine(ItemRepository itemStorage) {
+        this.itemStorage = itemStorage;
+        this.fallback = new LikeItemSearchEngine(itemStorage);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<ItemText> chunk = itemStorage.findTextsAfter(0, PageRequest.of(0, LOAD_CHUNK));
+
+        while (!chunk.isEmpty()) {
+            chunk.forEach(x -> index.put(x.getId(), x.getName(), x.getDescription(), x.getAvailable()));
+            chunk = chunk.size() < LOAD_CHUNK ? List.of()
+                    : itemStorage.findTextsAfter(chunk.get(chunk.size() - 1).getId(), PageRequest.of(0, LOAD_CHUNK));
+        }
+        ready = true;
+        log.info("Item search index loaded. Items = {}", index.size());
+    }
+
+    /**
+     * Ids whose rows are gone, deleted on another node or by a cascade this node missed, are dropped from
+     * the index and the page is searched again, so it never holds missing items.
+     */
+    @Override
+    public CursorPage<Item> search(String text, PageCursor after, int from, int size) {
+        if (!ready) {
+            return fallback.search(text, after, from, size);
+        }
+
+        List<SearchHit> hits;
+        Map<Long, Item> items;
+        List<Long> missing;
+
+        do {
+            hits = index.search(text, after == null ? null : new SearchHit(after.getId(), after.getIntKey()),
+                    after == null ? from : 0, size);
+            items = itemStorage.findAllById(hits.stream().map(SearchHit::getId).collect(Collectors.toList()))
+                    .stream()
+                    .collect(Collectors.toMap(Item::getId, Function.identity()));
+            missing = missing(hits, items);
+            missing.forEach(index::remove);
+        } while (!missing.isEmpty());
+
+        Map<Long, Item> found = items;
+
+        return CursorPage.of(hits, size, x -> PageCursor.of(x.getScore(), x.getId())).map(x -> found.get(x.getId()));
+    }
+
+    @Override
+    public void index(Item item) {
+        Transactions.afterCommit(() -> put(item));
+    }
+
+    @Override
+    public void remove(Collection<Long> itemIds) {
+        Transactions.afterCommit(() -> itemIds.forEach(index::remove));
+    }
+
+    private void put(Item item) {
+        index.put(item.getId(), item.getName(), item.getDescription(), Boolean.TRUE.equals(item.getAvailable()));
+    }
+
+    private static List<Long> missing(List<SearchHit> hits, Map<Long, Item> items) {
+        return hits.stream()
+                .map(SearchHit::getId)
+                .filter(x -> !items.containsKey(x))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,22 @@
+package ru.practicum.shareit.item.search;
+
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.pagination.CursorPage;
+import ru.practicum.shareit.pagination.PageCursor;
+
+import java.util.Collection;
+
+public interface ItemSearchEngine {
+    /**
+     * Returns available items matching the text, best matches first.
+     * Cursors of the page carry the relevance score and id of its last item.
+     */
+    CursorPage<Item> search(String text, PageCursor after, int from, int size);
+
+    void index(Item item);
+
+    /**
+     * Forgets items deleted by the database cascade once the deleting transaction commits.
+     */
+    void remove(Collection<Long> itemIds);
+}
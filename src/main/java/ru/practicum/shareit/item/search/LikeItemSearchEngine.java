@@ -0,0 +1,59 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.pagination.CursorPage;
+import ru.practicum.shareit.pagination.OffsetPageRequest;
+import ru.practicum.shareit.pagination.PageCursor;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "shareit.search.engine", havingValue = "like")
+public class LikeItemSearchEngine implements ItemSearchEngine {
+    private static final int MAX_SCORE = 10;
+
+    private final ItemRepository itemStorage;
+
+    @Override
+    public CursorPage<Item> search(String text, PageCursor after, int from, int size) {
+        List<Item> items = after == null
+                ? itemStorage.search(text, MAX_SCORE + 1, 0, OffsetPageRequest.of(from, size))
+                : itemStorage.search(text, after.getIntKey(), after.getId(), PageRequest.of(0, size));
+
+        return CursorPage.of(items, size, x -> PageCursor.of(score(x, text), x.getId()));
+    }
+
+    @Override
+    public void index(Item item) {
+    }
+
+    @Override
+    public void remove(Collection<Long> itemIds) {
+    }
+
+    /**
+     * Same score as ItemRepository.MATCH_SCORE, so that cursors continue where the query stopped.
+     */
+    private static int score(Item item, String text) {
+        String query = text.toLowerCase(Locale.ROOT);
+
+        return 4 * match(item.getName(), query) + match(item.getDescription(), query);
+    }
+
+    private static int match(String text, String query) {
+        String value = text.toLowerCase(Locale.ROOT);
+
+        if ((" " + value + " ").contains(" " + query + " ")) {
+            return 2;
+        }
+        return value.contains(query) ? 1 : 0;
+    }
+}
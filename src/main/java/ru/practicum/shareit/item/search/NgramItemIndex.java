@@ -0,0 +1,188 @@
+package ru.practicum.shareit.item.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Inverted index from trigrams of item name and description to item ids.
+ * Writes are serialized, searches run without locking against concurrent maps.
+ */
+public class NgramItemIndex {
+    private static final int GRAM_LENGTH = 3;
+    private static final int WORD_MATCH = 2;
+    private static final int SUBSTRING_MATCH = 1;
+    // any name match outranks the best description match
+    private static final int NAME_WEIGHT = 4;
+    private static final Comparator<SearchHit> RANKING = Comparator.comparingInt(SearchHit::getScore).reversed()
+            .thenComparingLong(SearchHit::getId);
+
+    private final Map<Long, Document> documents = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+
+    public synchronized void put(long id, String name, String description, boolean available) {
+        Document document = new Document(normalize(name), normalize(description), available);
+        Set<String> grams = grams(document);
+        Document previous = documents.put(id, document);
+
+        if (previous != null) {
+            for (String gram : grams(previous)) {
+                if (!grams.contains(gram)) {
+                    removePosting(gram, id);
+                }
+            }
+        }
+        for (String gram : grams) {
+            postings.computeIfAbsent(gram, x -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    public synchronized void remove(long id) {
+        Document previous = documents.remove(id);
+
+        if (previous != null) {
+            grams(previous).forEach(x -> removePosting(x, id));
+        }
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    /**
+     * Returns available items containing the text in name or description, skipping hits up to the given one.
+     * Name matches go before description matches and whole words before parts of words, ties are ordered by id.
+     * Only the best from + size hits are kept while scanning, so a broad query costs memory of a page, not of
+     * all its matches.
+     */
+    public List<SearchHit> search(String text, SearchHit after, int from, int size) {
+        String query = normalize(text);
+
+        if (query.isBlank()) {
+            return List.of();
+        }
+
+        int limit = from + size;
+        // the worst of the kept hits is on top, to be replaced by a better one
+        PriorityQueue<SearchHit> top = new PriorityQueue<>(Math.min(limit, 256), RANKING.reversed());
+
+        for (Long id : candidates(query)) {
+            Document document = documents.get(id);
+
+            if (document == null || !document.available) {
+                continue;
+            }
+
+            SearchHit hit = new SearchHit(id, document.score(query));
+
+            if (hit.getScore() == 0 || (after != null && !hit.isAfter(after))) {
+                continue;
+            }
+            if (top.size() < limit) {
+                top.add(hit);
+            } else if (RANKING.compare(hit, top.peek()) < 0) {
+                top.poll();
+                top.add(hit);
+            }
+        }
+
+        List<SearchHit> hits = new ArrayList<>(top);
+
+        hits.sort(RANKING);
+        return from < hits.size() ? hits.subList(from, hits.size()) : List.of();
+    }
+
+    private Collection<Long> candidates(String query) {
+        if (query.length() < GRAM_LENGTH) {
+            return documents.keySet();
+        }
+
+        List<Set<Long>> sets = new ArrayList<>();
+
+        for (String gram : grams(query, new HashSet<>())) {
+            Set<Long> ids = postings.get(gram);
+
+            if (ids == null) {
+                return List.of();
+            }
+            sets.add(ids);
+        }
+        sets.sort(Comparator.comparingInt(Set::size));
+
+        List<Long> result = new ArrayList<>();
+
+        for (Long id : sets.get(0)) {
+            if (sets.stream().skip(1).allMatch(x -> x.contains(id))) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    private void removePosting(String gram, long id) {
+        postings.computeIfPresent(gram, (key, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private static Set<String> grams(Document document) {
+        Set<String> grams = new HashSet<>();
+        grams(document.name, grams);
+        grams(document.description, grams);
+        return grams;
+    }
+
+    private static Set<String> grams(String text, Set<String> grams) {
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    private static class Document {
+        private final String name;
+        private final String description;
+        private final boolean available;
+
+        Document(String name, String description, boolean available) {
+            this.name = name;
+            this.description = description;
+            this.available = available;
+        }
+
+        int score(String query) {
+            return NAME_WEIGHT * match(name, query) + match(description, query);
+        }
+
+        private static int match(String text, String query) {
+            int index = text.indexOf(query);
+
+            if (index < 0) {
+                return 0;
+            }
+            for (; index >= 0; index = text.indexOf(query, index + 1)) {
+                if (isBoundary(text, index - 1) && isBoundary(text, index + query.length())) {
+                    return WORD_MATCH;
+                }
+            }
+            return SUBSTRING_MATCH;
+        }
+
+        // words are separated by spaces only, as in ItemRepository.MATCH_SCORE, so both engines rank alike
+        private static boolean isBoundary(String text, int index) {
+            return index < 0 || index >= text.length() || text.charAt(index) == ' ';
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public class SearchHit {
+    private final long id;
+    private final int score;
+
+    /**
+     * Hits are ordered by score descending, then by id ascending.
+     */
+    public boolean isAfter(SearchHit other) {
+        return score < other.score || (score == other.score && id > other.id);
+    }
+}
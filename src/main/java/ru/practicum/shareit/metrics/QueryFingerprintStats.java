@@ -0,0 +1,19 @@
+package ru.practicum.shareit.metrics;
+
+import lombok.Builder;
+import lombok.Getter;
+
+@Getter
+@Builder
+public class QueryFingerprintStats {
+    private final String fingerprint;
+    private final long count;
+    private final long slowCount;
+    private final double totalMs;
+    private final double meanMs;
+    private final double p50Ms;
+    private final double p95Ms;
+    private final double p99Ms;
+    private final double maxMs;
+    private final String lastSlowCaller;
+}
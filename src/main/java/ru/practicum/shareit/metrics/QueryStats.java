@@ -0,0 +1,183 @@
+package ru.practicum.shareit.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Count and latency of statement executions per SQL fingerprint.
+ * At most maxFingerprints shapes are tracked, executions of any further ones are added up under "other",
+ * and every fingerprint keeps a fixed histogram, so memory doesn't grow with the number of distinct queries.
+ */
+@Slf4j
+public class QueryStats {
+    static final String OTHER = "other";
+    private static final String APPLICATION_PACKAGE = "ru.practicum.shareit.";
+    private static final Set<Class<?>> RECORDING_CLASSES = Set.of(QueryStats.class,
+            StatementTimingDataSource.class);
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance(
+            StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+    private final long thresholdNanos;
+    private final int maxFingerprints;
+    private final Map<String, String> fingerprints = new ConcurrentHashMap<>();
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Entry other = new Entry(OTHER);
+
+    public QueryStats(Duration threshold, int maxFingerprints) {
+        this.thresholdNanos = threshold.toNanos();
+        this.maxFingerprints = maxFingerprints;
+    }
+
+    /**
+     * Adds the execution to the statistics of its fingerprint and logs it with its caller if it was slow.
+     */
+    public void record(String sql, long nanos) {
+        String fingerprint = fingerprint(sql);
+        Entry entry = entries.get(fingerprint);
+
+        if (entry == null) {
+            entry = entries.size() < maxFingerprints
+                    ? entries.computeIfAbsent(fingerprint, Entry::new)
+                    : other;
+        }
+        entry.record(nanos);
+
+        if (nanos >= thresholdNanos) {
+            String caller = caller();
+
+            entry.slow.increment();
+            entry.lastSlowCaller.set(caller);
+            log.warn("Slow query took {} ms in {}: {}", TimeUnit.NANOSECONDS.toMillis(nanos), caller, fingerprint);
+        }
+    }
+
+    /**
+     * Returns the fingerprints with the largest total execution time first.
+     */
+    public List<QueryFingerprintStats> top(int limit) {
+        return Stream.concat(entries.values().stream(), Stream.of(other))
+                .filter(x -> x.count.sum() > 0)
+                .sorted(Comparator.comparingLong((Entry x) -> x.totalNanos.sum()).reversed())
+                .limit(limit)
+                .map(Entry::snapshot)
+                .collect(Collectors.toList());
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // raw statements repeat, so their fingerprints are kept as long as there's room for them
+    private String fingerprint(String sql) {
+        String fingerprint = fingerprints.get(sql);
+
+        if (fingerprint == null) {
+            fingerprint = SqlFingerprint.of(sql);
+
+            if (fingerprints.size() < maxFingerprints * 4) {
+                fingerprints.put(sql, fingerprint);
+            }
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Names the service method the statement was run for, the first application frame if no service is involved.
+     */
+    private static String caller() {
+        Optional<StackWalker.StackFrame> frame = STACK_WALKER.walk(frames -> frames
+                .filter(x -> isApplication(x) && x.getDeclaringClass().isAnnotationPresent(Service.class))
+                .findFirst());
+
+        if (frame.isEmpty()) {
+            frame = STACK_WALKER.walk(frames -> frames.filter(QueryStats::isApplication).findFirst());
+        }
+        return frame.map(x -> x.getDeclaringClass().getSimpleName() + "." + x.getMethodName()).orElse("unknown");
+    }
+
+    private static boolean isApplication(StackWalker.StackFrame frame) {
+        String className = frame.getClassName();
+
+        return className.startsWith(APPLICATION_PACKAGE) && !className.contains("$$")
+                && !RECORDING_CLASSES.contains(frame.getDeclaringClass().getNestHost());
+    }
+
+    private static class Entry {
+        // bucket i counts executions of 2^(i - 1) up to 2^i microseconds, the last one everything longer
+        private static final int BUCKETS = 32;
+
+        private final String fingerprint;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder slow = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicReference<String> lastSlowCaller = new AtomicReference<>();
+
+        Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        void record(long nanos) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            buckets.incrementAndGet(Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKETS - 1));
+        }
+
+        QueryFingerprintStats snapshot() {
+            long executions = count.sum();
+            long total = totalNanos.sum();
+
+            return QueryFingerprintStats.builder()
+                    .fingerprint(fingerprint)
+                    .count(executions)
+                    .slowCount(slow.sum())
+                    .totalMs(millis(total))
+                    .meanMs(millis(total / executions))
+                    .p50Ms(percentile(executions, 0.5))
+                    .p95Ms(percentile(executions, 0.95))
+                    .p99Ms(percentile(executions, 0.99))
+                    .maxMs(millis(maxNanos.get()))
+                    .lastSlowCaller(lastSlowCaller.get())
+                    .build();
+        }
+
+        /**
+         * Estimates the percentile by the upper bound of the bucket it falls in.
+         */
+        private double percentile(long executions, double percentile) {
+            long seen = 0;
+
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+
+                if (seen >= executions * percentile) {
+                    return Math.min((1L << i) / 1000.0, millis(maxNanos.get()));
+                }
+            }
+            return millis(maxNanos.get());
+        }
+
+        private double millis(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package ru.practicum.shareit.metrics;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnProperty(name = "shareit.slow-query.enabled", havingValue = "true", matchIfMissing = true)
+public class SlowQueryConfig {
+    @Bean
+    public QueryStats queryStats(@Value("${shareit.slow-query.threshold:PT0.1S}") Duration threshold,
+                                 @Value("${shareit.slow-query.max-fingerprints:1000}") int maxFingerprints) {
+        return new QueryStats(threshold, maxFingerprints);
+    }
+
+    @Bean
+    public SlowQueryEndpoint slowQueryEndpoint(QueryStats queryStats,
+                                               @Value("${shareit.slow-query.top:20}") int top) {
+        return new SlowQueryEndpoint(queryStats, top);
+    }
+
+    /**
+     * Static, so that post-processing the data source doesn't require this configuration to be created first.
+     */
+    @Bean
+    public static BeanPostProcessor statementTimingPostProcessor(ObjectProvider<QueryStats> queryStats) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource
+                        ? StatementTimingDataSource.wrap((DataSource) bean, queryStats.getObject())
+                        : bean;
+            }
+        };
+    }
+}
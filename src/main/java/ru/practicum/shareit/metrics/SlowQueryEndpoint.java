@@ -0,0 +1,23 @@
+package ru.practicum.shareit.metrics;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * Lists the SQL fingerprints that took the most database time, at /actuator/slowqueries.
+ */
+@Endpoint(id = "slowqueries")
+@RequiredArgsConstructor
+public class SlowQueryEndpoint {
+    private final QueryStats queryStats;
+    private final int defaultLimit;
+
+    @ReadOperation
+    public List<QueryFingerprintStats> top(@Nullable Integer limit) {
+        return queryStats.top(limit == null ? defaultLimit : limit);
+    }
+}
@@ -0,0 +1,28 @@
+package ru.practicum.shareit.metrics;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Reduces a statement to its shape: literals become placeholders, lists of placeholders collapse into one
+ * and case and whitespace are normalized, so executions of one query with any arguments share a fingerprint.
+ */
+public final class SqlFingerprint {
+    private static final Pattern COMMENT = Pattern.compile("/\\*.*?\\*/|--[^\\n]*", Pattern.DOTALL);
+    private static final Pattern STRING = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private SqlFingerprint() {
+    }
+
+    public static String of(String sql) {
+        String fingerprint = COMMENT.matcher(sql).replaceAll(" ");
+        fingerprint = STRING.matcher(fingerprint).replaceAll("?");
+        fingerprint = NUMBER.matcher(fingerprint).replaceAll("?");
+        fingerprint = WHITESPACE.matcher(fingerprint).replaceAll(" ");
+        fingerprint = PLACEHOLDER_LIST.matcher(fingerprint).replaceAll("(?+)");
+        return fingerprint.trim().toLowerCase(Locale.ROOT);
+    }
+}
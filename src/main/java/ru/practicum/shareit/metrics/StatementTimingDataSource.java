@@ -0,0 +1,76 @@
+package ru.practicum.shareit.metrics;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Set;
+
+/**
+ * Wraps a data source so that every statement execution is timed and recorded under the SQL it ran.
+ * Only the execute calls are timed, reading the result set afterwards is not.
+ */
+public final class StatementTimingDataSource {
+    private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeBatch", "executeLargeUpdate", "executeLargeBatch");
+    private static final Set<String> PREPARE_METHODS = Set.of("prepareStatement", "prepareCall");
+
+    private StatementTimingDataSource() {
+    }
+
+    public static DataSource wrap(DataSource dataSource, QueryStats queryStats) {
+        return (DataSource) Proxy.newProxyInstance(StatementTimingDataSource.class.getClassLoader(),
+                new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+                    Object result = invoke(dataSource, method, args);
+
+                    return result instanceof Connection ? connection((Connection) result, queryStats) : result;
+                });
+    }
+
+    private static Connection connection(Connection connection, QueryStats queryStats) {
+        return (Connection) Proxy.newProxyInstance(StatementTimingDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+
+                    if (result instanceof Statement) {
+                        String sql = PREPARE_METHODS.contains(method.getName()) ? (String) args[0] : null;
+                        return statement((Statement) result, sql, queryStats);
+                    }
+                    return result;
+                });
+    }
+
+    private static Statement statement(Statement statement, String preparedSql, QueryStats queryStats) {
+        Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+
+        return (Statement) Proxy.newProxyInstance(StatementTimingDataSource.class.getClassLoader(),
+                new Class<?>[]{type}, (proxy, method, args) -> {
+                    if (!EXECUTE_METHODS.contains(method.getName())) {
+                        return invoke(statement, method, args);
+                    }
+
+                    long start = System.nanoTime();
+
+                    try {
+                        return invoke(statement, method, args);
+                    } finally {
+                        String sql = args != null && args.length > 0 && args[0] instanceof String
+                                ? (String) args[0] : preparedSql;
+                        queryStats.record(sql == null ? "batch" : sql, System.nanoTime() - start);
+                    }
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
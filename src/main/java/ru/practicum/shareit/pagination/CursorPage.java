@@ -0,0 +1,82 @@
+package ru.practicum.shareit.pagination;
+
+import org.springframework.http.ResponseEntity;
+import ru.practicum.shareit.exception.PaginationException;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Page of a keyset listing together with the cursor of the next page, if there may be one.
+ */
+public final class CursorPage<T> {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final int DEFAULT_SIZE = 10;
+
+    private final List<T> content;
+    private final PageCursor next;
+
+    private CursorPage(List<T> content, PageCursor next) {
+        this.content = content;
+        this.next = next;
+    }
+
+    /**
+     * A full page gets the cursor of its last element, a shorter one is the last page.
+     */
+    public static <T> CursorPage<T> of(List<T> content, int size, Function<T, PageCursor> cursor) {
+        if (content.size() < size || content.isEmpty()) {
+            return new CursorPage<>(content, null);
+        }
+        return new CursorPage<>(content, cursor.apply(content.get(content.size() - 1)));
+    }
+
+    public static <T> CursorPage<T> empty() {
+        return new CursorPage<>(List.of(), null);
+    }
+
+    /**
+     * Size of the requested page. A listing asked for without size and cursor gets up to the unpaged size, so
+     * clients of the listings from before they were paged get them whole unless they are longer; a longer one is
+     * cut and carries the next cursor. A cursor without size continues with pages of the default size.
+     */
+    public static int size(Integer size, String cursor, int unpagedSize) {
+        if (size != null) {
+            return size;
+        }
+        return cursor == null ? unpagedSize : DEFAULT_SIZE;
+    }
+
+    public static void check(int from, int size) {
+        if (from < 0 || size <= 0) {
+            throw new PaginationException("Parameter from must be non-negative and size must be positive");
+        }
+    }
+
+    public <R> CursorPage<R> map(Function<T, R> mapper) {
+        return new CursorPage<>(content.stream().map(mapper).collect(Collectors.toList()), next);
+    }
+
+    public CursorPage<T> filter(Predicate<T> predicate) {
+        return new CursorPage<>(content.stream().filter(predicate).collect(Collectors.toList()), next);
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public PageCursor getNext() {
+        return next;
+    }
+
+    public ResponseEntity<List<T>> toResponse() {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+
+        if (next != null) {
+            response.header(NEXT_CURSOR_HEADER, next.encode());
+        }
+        return response.body(content);
+    }
+}
@@ -0,0 +1,83 @@
+package ru.practicum.shareit.pagination;
+
+import ru.practicum.shareit.exception.PaginationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position after the last element of a page: the id of that element and, when the listing is sorted by
+ * another column first, the value of that column. Clients get it as an opaque token.
+ */
+public final class PageCursor {
+    private static final char SEPARATOR = '|';
+
+    private final String key;
+    private final long id;
+
+    private PageCursor(String key, long id) {
+        this.key = key;
+        this.id = id;
+    }
+
+    public static PageCursor of(long id) {
+        return new PageCursor(null, id);
+    }
+
+    public static PageCursor of(Object key, long id) {
+        return new PageCursor(String.valueOf(key), id);
+    }
+
+    /**
+     * Returns null for a missing token, so the listing starts from the beginning.
+     */
+    public static PageCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf(SEPARATOR);
+
+            return new PageCursor(separator < 0 ? null : value.substring(0, separator),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new PaginationException("Invalid cursor");
+        }
+    }
+
+    public String encode() {
+        String value = key == null ? String.valueOf(id) : key + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public LocalDateTime getTimeKey() {
+        try {
+            return LocalDateTime.parse(requireKey());
+        } catch (DateTimeParseException e) {
+            throw new PaginationException("Invalid cursor");
+        }
+    }
+
+    public int getIntKey() {
+        try {
+            return Integer.parseInt(requireKey());
+        } catch (NumberFormatException e) {
+            throw new PaginationException("Invalid cursor");
+        }
+    }
+
+    private String requireKey() {
+        if (key == null) {
+            throw new PaginationException("Invalid cursor");
+        }
+        return key;
+    }
+}
@@ -0,0 +1,45 @@
+package ru.practicum.shareit.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.Set;
+
+@Configuration
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "shareit.rate-limit.enabled", havingValue = "true")
+public class RateLimitConfig implements WebMvcConfigurer {
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${shareit.rate-limit.slots:1048576}")
+    private int slots;
+
+    @Value("${shareit.rate-limit.cheap.rate:50}")
+    private double cheapRate;
+
+    @Value("${shareit.rate-limit.cheap.burst:100}")
+    private int cheapBurst;
+
+    @Value("${shareit.rate-limit.expensive.rate:2}")
+    private double expensiveRate;
+
+    @Value("${shareit.rate-limit.expensive.burst:10}")
+    private int expensiveBurst;
+
+    @Value("${shareit.rate-limit.expensive.endpoints:}")
+    private Set<String> expensiveEndpoints;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new RateLimitInterceptor(new TokenBuckets(slots, cheapRate, cheapBurst),
+                new TokenBuckets(slots, expensiveRate, expensiveBurst), expensiveEndpoints, objectMapper,
+                meterRegistry)).order(Integer.MIN_VALUE + 1);
+    }
+}
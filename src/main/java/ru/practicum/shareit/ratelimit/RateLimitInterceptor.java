@@ -0,0 +1,85 @@
+package ru.practicum.shareit.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.practicum.shareit.handler.ErrorResponse;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits requests of every X-Sharer-User-Id with two budgets: expensive endpoints, named as method and mapping
+ * pattern, and all the others. A request over the budget is answered with 429 and the seconds to wait.
+ * Requests without the user header pass, they are refused by the controllers anyway.
+ */
+public class RateLimitInterceptor implements HandlerInterceptor {
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+
+    private final Budget cheap;
+    private final Budget expensive;
+    private final Set<String> expensiveEndpoints;
+    private final ObjectMapper objectMapper;
+
+    public RateLimitInterceptor(TokenBuckets cheap, TokenBuckets expensive, Set<String> expensiveEndpoints,
+                                ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.cheap = new Budget(cheap, rejections(meterRegistry, "cheap"));
+        this.expensive = new Budget(expensive, rejections(meterRegistry, "expensive"));
+        this.expensiveEndpoints = expensiveEndpoints;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+        long userId;
+
+        try {
+            userId = Long.parseLong(request.getHeader(USER_HEADER));
+        } catch (NumberFormatException e) {
+            return true;
+        }
+
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Budget budget = expensiveEndpoints.contains(request.getMethod() + " " + pattern) ? expensive : cheap;
+        long waitNanos = budget.buckets.tryAcquire(userId);
+
+        if (waitNanos == 0) {
+            return true;
+        }
+
+        long seconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        budget.rejections.increment();
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                new ErrorResponse("Too many requests, retry in " + seconds + " s"));
+        return false;
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String budget) {
+        return Counter.builder("shareit.ratelimit.rejected")
+                .description("Requests refused by the per-user rate limit")
+                .tag("budget", budget)
+                .register(meterRegistry);
+    }
+
+    private static class Budget {
+        private final TokenBuckets buckets;
+        private final Counter rejections;
+
+        Budget(TokenBuckets buckets, Counter rejections) {
+            this.buckets = buckets;
+            this.rejections = rejections;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package ru.practicum.shareit.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets of any number of keys in a fixed table. A key is hashed to a slot holding the time its bucket
+ * is full again (the generic cell rate algorithm), so memory doesn't grow with the keys: keys sharing a slot
+ * share one budget, which only makes the limit stricter for them. Slots are updated by compare-and-set.
+ */
+public class TokenBuckets {
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final long intervalNanos;
+    private final long capacityNanos;
+    private final LongSupplier clock;
+    private final long origin;
+
+    public TokenBuckets(int slotCount, double tokensPerSecond, int burst) {
+        this(slotCount, tokensPerSecond, burst, System::nanoTime);
+    }
+
+    TokenBuckets(int slotCount, double tokensPerSecond, int burst, LongSupplier clock) {
+        if (Integer.bitCount(slotCount) != 1) {
+            throw new IllegalArgumentException("Slot count must be a power of two");
+        }
+        if (tokensPerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        this.slots = new AtomicLongArray(slotCount);
+        this.mask = slotCount - 1;
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / tokensPerSecond);
+        this.capacityNanos = intervalNanos * burst;
+        this.clock = clock;
+        this.origin = clock.getAsLong();
+    }
+
+    /**
+     * Takes a token of the key. Returns zero when it was taken, otherwise nanoseconds until one is available.
+     */
+    public long tryAcquire(long key) {
+        int slot = slot(key);
+
+        while (true) {
+            // slots start at zero, which is a full bucket at the origin
+            long now = clock.getAsLong() - origin;
+            long fullAt = slots.get(slot);
+            long next = Math.max(fullAt, now) + intervalNanos;
+
+            if (next - now > capacityNanos) {
+                return next - now - capacityNanos;
+            }
+            if (slots.compareAndSet(slot, fullAt, next)) {
+                return 0;
+            }
+        }
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -1,7 +1,8 @@
 package ru.practicum.shareit.user;
 
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
@@ -9,7 +10,11 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import ru.practicum.shareit.bulk.BulkResult;
+import ru.practicum.shareit.pagination.CursorPage;
 import ru.practicum.shareit.user.dto.UserDto;
 
 import javax.validation.Valid;
@@ -18,38 +23,46 @@ import java.util.List;
 @RestController
 @RequestMapping(path = "/users")
 @RequiredArgsConstructor
-@Slf4j
 public class UserController {
     private final UserService userService;
     private final UserMapper userMapper;
 
+    @Value("${shareit.pagination.unpaged-size:1000}")
+    private int unpagedSize;
+
     @PostMapping
     public UserDto create(@Valid @RequestBody UserDto userDto) {
-        log.info("Requested user creation. UserDto = {}", userDto);
         return userService.create(userMapper.toEntity(userDto));
     }
 
+    @PostMapping("/bulk")
+    public List<BulkResult> createAll(@RequestBody List<UserDto> users) {
+        return userService.createAll(users);
+    }
+
     @PatchMapping("/{userId}")
     public UserDto update(@Valid @PathVariable long userId, @RequestBody UserDto userDto) {
-        log.info("Requested user update. UserId = {}, userDto = {}", userId, userDto);
         return userService.update(userId, userMapper.toEntity(userDto));
     }
 
     @GetMapping("/{userId}")
-    public UserDto getById(@PathVariable long userId) {
-        log.info("Requested user by id = {}", userId);
-        return userMapper.toDto(userService.getById(userId));
+    public UserDto getById(@PathVariable long userId, WebRequest request) {
+        User user = userService.getById(userId);
+
+        if (request.checkNotModified("user-" + user.getId() + "-" + user.getVersion())) {
+            return null;
+        }
+        return userMapper.toDto(user);
     }
 
     @GetMapping
-    public List<UserDto> getAll() {
-        log.info("Requested all users");
-        return userService.getAll();
+    public ResponseEntity<List<UserDto>> getAll(@RequestParam(required = false) Integer size,
+                                                @RequestParam(required = false) String cursor) {
+        return userService.getAll(cursor, CursorPage.size(size, cursor, unpagedSize)).toResponse();
     }
 
     @DeleteMapping("/{userId}")
     public void delete(@PathVariable long userId) {
-        log.info("Requested user delete by id = {}", userId);
         userService.deleteById(userId);
     }
 }
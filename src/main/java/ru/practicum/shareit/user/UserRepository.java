@@ -1,6 +1,13 @@
 package ru.practicum.shareit.user;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface UserRepository extends JpaRepository<User, Long> {
+    List<User> findByIdGreaterThan(long id, Pageable pageable);
+
+    List<User> findByEmailIn(Collection<String> emails);
 }
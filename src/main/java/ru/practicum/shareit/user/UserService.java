@@ -2,13 +2,33 @@ package ru.practicum.shareit.user;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.BookingIntervalIndex;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.bulk.BulkImporter;
+import ru.practicum.shareit.bulk.BulkResult;
+import ru.practicum.shareit.comment.Comment;
 import ru.practicum.shareit.exception.UserCreationException;
 import ru.practicum.shareit.exception.UserNotExistException;
+import ru.practicum.shareit.item.ItemAvailabilityCache;
+import ru.practicum.shareit.item.ItemBookingSummaries;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.search.ItemSearchEngine;
+import ru.practicum.shareit.pagination.CursorPage;
+import ru.practicum.shareit.pagination.PageCursor;
 import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.util.Transactions;
 
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -16,24 +36,53 @@ import java.util.stream.Collectors;
 @Slf4j
 public class UserService {
     private final UserRepository userStorage;
+    private final ItemRepository itemStorage;
+    private final ItemSearchEngine searchEngine;
+    private final BookingRepository bookingStorage;
+    private final BookingIntervalIndex intervalIndex;
+    private final ItemAvailabilityCache availabilityCache;
+    private final ItemBookingSummaries bookingSummaries;
     private final UserMapper userMapper;
+    private final BulkImporter bulkImporter;
+    private final EntityManagerFactory entityManagerFactory;
 
     @Transactional(rollbackFor = Exception.class)
     public UserDto create(User user) {
         try {
-            return userMapper.toDto(userStorage.save(user));
+            return userMapper.toDto(userStorage.saveAndFlush(user));
         } catch (Exception e) {
             throw new UserCreationException("User with such email already exists");
         }
     }
 
+    /**
+     * Creates users in one transaction, an email already taken or repeated in the import rejects its record.
+     */
     @Transactional
-    public UserDto update(long id, User user) {
-        if (!userStorage.existsById(id)) {
-            throw new UserNotExistException("No user with such was found");
-        }
+    public List<BulkResult> createAll(List<UserDto> users) {
+        Set<String> emails = userStorage.findByEmailIn(users.stream()
+                        .filter(Objects::nonNull)
+                        .map(UserDto::getEmail)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .map(User::getEmail)
+                .collect(Collectors.toCollection(HashSet::new));
+
+        return bulkImporter.importAll(users, x -> {
+            if (!emails.add(x.getEmail())) {
+                throw new UserCreationException("User with such email already exists");
+            }
+            User user = userMapper.toEntity(x);
+            user.setId(0);
+            return user;
+        }, userStorage::save, User::getId);
+    }
 
-        User saved = userStorage.findById(id).orElseThrow();
+    @Transactional
+    public UserDto update(long id, User user) {
+        User saved = userStorage.findById(id)
+                .orElseThrow(() -> new UserNotExistException("No user with such was found"));
 
         if (user.getName() != null) {
             saved.setName(user.getName());
@@ -47,16 +96,40 @@ public class UserService {
 
     @Transactional
     public void deleteById(Long userId) {
+        List<Long> itemIds = itemStorage.findIdsByOwnerId(userId);
+        List<Long> bookedItemIds = bookingStorage.findItemIdsByBookerId(userId);
+
         userStorage.deleteById(userId);
+        searchEngine.remove(itemIds);
+        intervalIndex.evict(itemIds);
+        intervalIndex.evict(bookedItemIds);
+        availabilityCache.invalidate(bookedItemIds);
+        bookingSummaries.forget(bookedItemIds);
+        Transactions.afterCommit(this::evictCascaded);
     }
 
     public User getById(Long userId) {
         return userStorage.findById(userId).orElseThrow();
     }
 
-    public List<UserDto> getAll() {
-        return userStorage.findAll().stream()
-                .map(userMapper::toDto)
-                .collect(Collectors.toList());
+    public CursorPage<UserDto> getAll(String cursor, int size) {
+        CursorPage.check(0, size);
+        PageCursor after = PageCursor.decode(cursor);
+        List<User> users = userStorage.findByIdGreaterThan(after == null ? 0 : after.getId(),
+                PageRequest.of(0, size, Sort.by("id")));
+
+        return CursorPage.of(users, size, x -> PageCursor.of(x.getId())).map(userMapper::toDto);
+    }
+
+    /**
+     * Items and comments of a deleted user are removed by the database cascade, out of sight of Hibernate,
+     * so their second-level cache regions are dropped as a whole.
+     */
+    private void evictCascaded() {
+        Cache cache = entityManagerFactory.getCache();
+
+        cache.evict(Item.class);
+        cache.evict(Comment.class);
+        cache.unwrap(org.hibernate.Cache.class).evictQueryRegions();
     }
 }
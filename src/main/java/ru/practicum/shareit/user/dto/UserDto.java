@@ -7,6 +7,7 @@ import javax.validation.constraints.Email;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
 
 @Getter
 @Builder
@@ -16,10 +17,12 @@ public class UserDto {
     @NotNull
     @NotEmpty
     @NotBlank
+    @Size(max = 255)
     private final String name;
 
     @NotNull
     @NotEmpty
     @Email
+    @Size(max = 512)
     private final String email;
 }
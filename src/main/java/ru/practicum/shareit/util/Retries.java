@@ -0,0 +1,40 @@
+package ru.practicum.shareit.util;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import ru.practicum.shareit.exception.UpdateConflictException;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+public final class Retries {
+    private static final long BACKOFF_MILLIS = 10;
+
+    private Retries() {
+    }
+
+    /**
+     * Runs the action again when it loses an optimistic lock, up to the given number of attempts.
+     * Attempts are spread by a random pause growing with every retry, so contending requests don't collide again.
+     */
+    public static <T> T onOptimisticLock(int attempts, Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= attempts) {
+                    throw new UpdateConflictException("The entity was changed concurrently, please retry");
+                }
+                pause(attempt);
+            }
+        }
+    }
+
+    private static void pause(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(BACKOFF_MILLIS * attempt, BACKOFF_MILLIS * attempt * 2));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UpdateConflictException("Interrupted while waiting to retry");
+        }
+    }
+}
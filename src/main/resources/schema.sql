@@ -1,3 +1,10 @@
+-- ids are taken from pooled sequences, the increment must match allocationSize of the entities;
+-- they are moved past the ids of existing rows at the end of the script
+CREATE SEQUENCE IF NOT EXISTS users_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS items_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS bookings_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS comments_seq START WITH 1 INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS users (
     user_id BIGINT PRIMARY KEY AUTO_INCREMENT NOT NULL,
     user_name VARCHAR(255) NOT NULL,
@@ -36,13 +43,70 @@ CREATE TABLE IF NOT EXISTS comments (
     created TIMESTAMP WITHOUT TIME ZONE NOT NULL
 );
 
+-- last and next approved booking of an item, maintained on approval and recomputed once the next one starts
+CREATE TABLE IF NOT EXISTS item_booking_summaries (
+    item_id BIGINT PRIMARY KEY NOT NULL REFERENCES items (item_id) ON DELETE CASCADE,
+    last_booking_id BIGINT,
+    last_booker_id BIGINT,
+    last_start TIMESTAMP WITHOUT TIME ZONE,
+    last_end TIMESTAMP WITHOUT TIME ZONE,
+    next_booking_id BIGINT,
+    next_booker_id BIGINT,
+    next_start TIMESTAMP WITHOUT TIME ZONE,
+    next_end TIMESTAMP WITHOUT TIME ZONE,
+    version BIGINT NOT NULL
+);
+
+-- bookings of the items of every owner, the owner listings scan it by owner and start
+CREATE TABLE IF NOT EXISTS owner_bookings (
+    booking_id BIGINT PRIMARY KEY NOT NULL REFERENCES bookings (booking_id) ON DELETE CASCADE,
+    owner_id BIGINT NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    start_date TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    end_date TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
+
+-- optimistic locking of approvals and entity tags of responses, added separately so existing tables get the columns too
+ALTER TABLE items ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE bookings ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
 --ALTER TABLE requests ADD CONSTRAINT fk_request_id FOREIGN KEY(user_id) REFERENCES users(user_id) ON DELETE CASCADE;
 
-ALTER TABLE items ADD CONSTRAINT fk_item_user_id FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE;
+ALTER TABLE items ADD CONSTRAINT IF NOT EXISTS fk_item_user_id FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE;
 --ALTER TABLE items ADD CONSTRAINT fk_item_request_id FOREIGN KEY (request_id) REFERENCES requests(request_id) ON DELETE CASCADE;
 
-ALTER TABLE bookings ADD CONSTRAINT fk_booking_item_id FOREIGN KEY (item_id) REFERENCES items(item_id) ON DELETE CASCADE;
-ALTER TABLE bookings ADD CONSTRAINT fk_booking_user_id FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE;
+ALTER TABLE bookings ADD CONSTRAINT IF NOT EXISTS fk_booking_item_id FOREIGN KEY (item_id) REFERENCES items(item_id) ON DELETE CASCADE;
+ALTER TABLE bookings ADD CONSTRAINT IF NOT EXISTS fk_booking_user_id FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE;
+
+ALTER TABLE comments ADD CONSTRAINT IF NOT EXISTS fk_comment_item_id FOREIGN KEY (item_id) REFERENCES items(item_id) ON DELETE CASCADE;
+ALTER TABLE comments ADD CONSTRAINT IF NOT EXISTS fk_comment_user_id FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE;
+
+CREATE INDEX IF NOT EXISTS idx_items_user_id ON items (user_id);
+CREATE INDEX IF NOT EXISTS idx_comments_item_id ON comments (item_id);
+
+CREATE INDEX IF NOT EXISTS idx_bookings_booker_start ON bookings (user_id, start_date DESC);
+CREATE INDEX IF NOT EXISTS idx_bookings_booker_status_start ON bookings (user_id, status, start_date DESC);
+CREATE INDEX IF NOT EXISTS idx_bookings_item_start ON bookings (item_id, start_date DESC);
+CREATE INDEX IF NOT EXISTS idx_bookings_item_status_start ON bookings (item_id, status, start_date DESC);
+CREATE INDEX IF NOT EXISTS idx_owner_bookings_owner_start ON owner_bookings (owner_id, start_date DESC, booking_id DESC);
+CREATE INDEX IF NOT EXISTS idx_owner_bookings_owner_status_start
+    ON owner_bookings (owner_id, status, start_date DESC, booking_id DESC);
+
+-- rows of bookings saved before the table existed
+INSERT INTO owner_bookings (booking_id, owner_id, status, start_date, end_date)
+SELECT b.booking_id, i.user_id, b.status, b.start_date, b.end_date
+FROM bookings b
+JOIN items i ON i.item_id = b.item_id
+WHERE NOT EXISTS (SELECT 1 FROM owner_bookings o WHERE o.booking_id = b.booking_id);
 
-ALTER TABLE comments ADD CONSTRAINT fk_comment_item_id FOREIGN KEY (item_id) REFERENCES items(item_id) ON DELETE CASCADE;
-ALTER TABLE comments ADD CONSTRAINT fk_comment_user_id FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE;
\ No newline at end of file
+-- a pooled sequence value v hands out the ids from v - 50 up to v - 1, so every sequence is moved to 50 past
+-- the largest id in its table; a sequence already further on is left where it is, other nodes may hold its ids
+ALTER SEQUENCE users_seq RESTART WITH (SELECT GREATEST(COALESCE(MAX(user_id), 0) + 51,
+    (SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'USERS_SEQ')) FROM users);
+ALTER SEQUENCE items_seq RESTART WITH (SELECT GREATEST(COALESCE(MAX(item_id), 0) + 51,
+    (SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'ITEMS_SEQ')) FROM items);
+ALTER SEQUENCE bookings_seq RESTART WITH (SELECT GREATEST(COALESCE(MAX(booking_id), 0) + 51,
+    (SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'BOOKINGS_SEQ')) FROM bookings);
+ALTER SEQUENCE comments_seq RESTART WITH (SELECT GREATEST(COALESCE(MAX(comment_id), 0) + 51,
+    (SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'COMMENTS_SEQ')) FROM comments);
@@ -0,0 +1,40 @@
+package ru.practicum.shareit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.practicum.shareit.user.UserRepository;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class SchemaTest {
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private UserRepository userStorage;
+
+    @Test
+    void rerunningSchemaMovesSequencesPastExistingIds() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        long before = jdbcTemplate.queryForObject("SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES "
+                + "WHERE SEQUENCE_NAME = 'USERS_SEQ'", Long.class);
+        long existing = before + 1000;
+
+        // a row written by an earlier deployment, with an id the sequence hasn't reached
+        jdbcTemplate.update("INSERT INTO users (user_id, user_name, user_email) VALUES (?, 'Old', ?)", existing,
+                TestFixtures.email());
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+
+        long next = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR users_seq", Long.class);
+
+        assertTrue(next - 50 > existing);
+
+        assertTrue(userStorage.save(TestFixtures.user("New", TestFixtures.email())).getId() > 0);
+    }
+}
@@ -0,0 +1,85 @@
+package ru.practicum.shareit;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.comment.Comment;
+import ru.practicum.shareit.comment.CommentRepository;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Saves the users, items, bookings and comments tests start from.
+ * Emails are random, so tests sharing an application context and its database don't clash.
+ */
+@Component
+@RequiredArgsConstructor
+public class TestFixtures {
+    private final UserRepository userStorage;
+    private final ItemRepository itemStorage;
+    private final BookingRepository bookingStorage;
+    private final CommentRepository commentStorage;
+
+    public User createUser() {
+        return createUser("User");
+    }
+
+    public User createUser(String name) {
+        return userStorage.save(user(name, email()));
+    }
+
+    public Item createItem(User owner) {
+        return createItem(owner, "Drill", "Simple drill");
+    }
+
+    public Item createItem(User owner, String name, String description) {
+        return itemStorage.save(item(owner, name, description));
+    }
+
+    public Booking createBooking(Item item, User booker, LocalDateTime start, LocalDateTime end,
+                                 BookingStatus status) {
+        Booking booking = new Booking();
+        booking.setItem(item);
+        booking.setBooker(booker);
+        booking.setStart(start);
+        booking.setEnd(end);
+        booking.setStatus(status);
+        return bookingStorage.save(booking);
+    }
+
+    public Comment createComment(Item item, User author, String text) {
+        Comment comment = new Comment();
+        comment.setText(text);
+        comment.setItem(item);
+        comment.setAuthor(author);
+        comment.setCreated(LocalDateTime.now());
+        return commentStorage.save(comment);
+    }
+
+    public static String email() {
+        return UUID.randomUUID() + "@mail.ru";
+    }
+
+    public static User user(String name, String email) {
+        User user = new User();
+        user.setName(name);
+        user.setEmail(email);
+        return user;
+    }
+
+    public static Item item(User owner, String name, String description) {
+        Item item = new Item();
+        item.setName(name);
+        item.setDescription(description);
+        item.setAvailable(true);
+        item.setOwner(owner);
+        return item;
+    }
+}
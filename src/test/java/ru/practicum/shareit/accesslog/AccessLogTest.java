@@ -0,0 +1,106 @@
+package ru.practicum.shareit.accesslog;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccessLogTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writesEventsAsJsonLines() throws Exception {
+        Path file = dir.resolve("logs/access.log");
+        AccessLog accessLog = new AccessLog(file, 8, 4, Duration.ofMillis(1));
+
+        accessLog.start();
+        accessLog.record(0, "GET", "/items/search", "/items/search", "text=\"drill\"", 200, 7, 1500, 2, null);
+        accessLog.record(0, "POST", null, "/users", null, 500, -1, 10, 0, "java.lang.IllegalStateException");
+        accessLog.close();
+
+        List<String> lines = Files.readAllLines(file);
+        JsonNode search = objectMapper.readTree(lines.get(0));
+        JsonNode failed = objectMapper.readTree(lines.get(1));
+
+        assertEquals(2, lines.size());
+        assertEquals("1970-01-01T00:00:00Z", search.get("time").asText());
+        assertEquals("/items/search", search.get("route").asText());
+        assertEquals("text=\"drill\"", search.get("query").asText());
+        assertEquals(7, search.get("userId").asLong());
+        assertEquals(1500, search.get("durationUs").asLong());
+        assertEquals(2, search.get("queries").asInt());
+        assertFalse(failed.has("userId"));
+        assertFalse(failed.has("route"));
+        assertEquals("java.lang.IllegalStateException", failed.get("error").asText());
+        assertEquals(2, accessLog.getWrittenCount());
+    }
+
+    @Test
+    void fullBufferDropsAndCountsEvents() throws Exception {
+        AccessLog accessLog = new AccessLog(dir.resolve("access.log"), 4, 4, Duration.ofMillis(1));
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(accessLog.record(0, "GET", "/users", "/users", null, 200, i, 1, 0, null));
+        }
+
+        assertFalse(accessLog.record(0, "GET", "/users", "/users", null, 200, 4, 1, 0, null));
+        assertEquals(1, accessLog.getDroppedCount());
+        assertEquals(4, accessLog.getBacklog());
+
+        accessLog.start();
+        accessLog.close();
+
+        assertEquals(4, accessLog.getWrittenCount());
+        assertEquals(0, accessLog.getBacklog());
+        assertEquals(4, Files.readAllLines(dir.resolve("access.log")).size());
+    }
+
+    @Test
+    void concurrentRequestsLoseNoEventsUnaccounted() throws Exception {
+        Path file = dir.resolve("access.log");
+        AccessLog accessLog = new AccessLog(file, 256, 64, Duration.ofMillis(1));
+        int threads = 4;
+        int events = 20_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<>();
+
+        accessLog.start();
+        for (int t = 0; t < threads; t++) {
+            long userId = t;
+            Thread producer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < events; i++) {
+                    accessLog.record(i, "GET", "/bookings", "/bookings", null, 200, userId, i, 1, null);
+                }
+            });
+            producer.start();
+            producers.add(producer);
+        }
+        start.countDown();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        accessLog.close();
+
+        assertEquals(threads * events, accessLog.getWrittenCount() + accessLog.getDroppedCount());
+        assertEquals(accessLog.getWrittenCount(), Files.readAllLines(file).size());
+    }
+}
@@ -0,0 +1,272 @@
+package ru.practicum.shareit.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import ru.practicum.shareit.benchmark.LoadWorkload.Endpoint;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * Sends mixes of listing and search requests to the application started on H2 and reports latency percentiles
+ * and throughput of every endpoint.
+ *
+ * <p>In the closed loop every client sends its next request once the previous one completes. In the open loop
+ * requests are sent at a fixed rate whatever the response times, and latency is counted from the moment a request
+ * was due, so a stalled server isn't hidden by requests that weren't sent.
+ *
+ * <p>Settings are system properties: loadtest.workloads, loadtest.arrival (closed or open), loadtest.clients,
+ * loadtest.rate, loadtest.warmup, loadtest.duration, loadtest.items, loadtest.bookings-per-item,
+ * loadtest.db-latency-ms, loadtest.pool-size and loadtest.report-dir. The report directory gets an HdrHistogram
+ * percentile distribution per workload and endpoint and summary.json with all of them.
+ */
+public final class ApiLoadRunner {
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final BenchmarkContext context;
+    private final HttpClient http;
+    private final int itemCount;
+
+    private ApiLoadRunner(BenchmarkContext context, HttpClient http, int itemCount) {
+        this.context = context;
+        this.http = http;
+        this.itemCount = itemCount;
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<LoadWorkload> workloads = List.of(System.getProperty("loadtest.workloads",
+                        "booker-heavy,owner-heavy,search-heavy").split(",")).stream()
+                .map(LoadWorkload::parse)
+                .collect(Collectors.toList());
+        boolean open = "open".equals(System.getProperty("loadtest.arrival", "closed"));
+        int clients = Integer.getInteger("loadtest.clients", 64);
+        int rate = Integer.getInteger("loadtest.rate", 500);
+        Duration warmup = Duration.parse(System.getProperty("loadtest.warmup", "PT10S"));
+        Duration duration = Duration.parse(System.getProperty("loadtest.duration", "PT30S"));
+        int itemCount = Integer.getInteger("loadtest.items", 200);
+        int bookingsPerItem = Integer.getInteger("loadtest.bookings-per-item", 20);
+        long dbLatency = Long.getLong("loadtest.db-latency-ms", 1);
+        int poolSize = Integer.getInteger("loadtest.pool-size", 20);
+        Path reportDir = Path.of(System.getProperty("loadtest.report-dir", "target/loadtest"));
+
+        System.out.printf("arrival=%s, %s, warmup=%s, duration=%s, items=%d, bookings per item=%d, "
+                        + "db latency=%dms, pool size=%d%n",
+                open ? "open" : "closed", open ? "rate=" + rate + "/s" : "clients=" + clients, warmup, duration,
+                itemCount, bookingsPerItem, dbLatency, poolSize);
+
+        BenchmarkContext context = BenchmarkContext.startServer("api-load", new JdbcLatency(dbLatency),
+                        "--spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                        "--server.tomcat.threads.max=" + Math.max(200, clients),
+                        "--server.tomcat.accept-count=" + Math.max(100, clients))
+                .seed(itemCount, bookingsPerItem);
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(4);
+        List<Map<String, Object>> summary = new ArrayList<>();
+
+        try {
+            ApiLoadRunner runner = new ApiLoadRunner(context, HttpClient.newBuilder()
+                    .executor(clientExecutor)
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .build(), itemCount);
+
+            for (LoadWorkload workload : workloads) {
+                Result result = open ? runner.runOpen(workload, rate, warmup, duration)
+                        : runner.runClosed(workload, clients, warmup, duration);
+                String run = workload.getName() + "-" + (open ? "open" : "closed");
+
+                result.print(run, duration);
+                summary.addAll(result.write(reportDir, run, workload, duration));
+            }
+            new ObjectMapper().writerWithDefaultPrettyPrinter()
+                    .writeValue(reportDir.resolve("summary.json").toFile(), summary);
+        } finally {
+            clientExecutor.shutdownNow();
+            context.close();
+        }
+    }
+
+    private Result runClosed(LoadWorkload workload, int clients, Duration warmup, Duration duration)
+            throws InterruptedException {
+        Result result = new Result();
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long measureTo = measureFrom + duration.toNanos();
+        CountDownLatch finished = new CountDownLatch(clients);
+
+        for (int i = 0; i < clients; i++) {
+            sendNext(workload, result, measureFrom, measureTo, finished);
+        }
+        finished.await(warmup.plus(duration).toSeconds() + 60, TimeUnit.SECONDS);
+        return result;
+    }
+
+    private void sendNext(LoadWorkload workload, Result result, long measureFrom, long measureTo,
+                          CountDownLatch finished) {
+        long due = System.nanoTime();
+
+        if (due >= measureTo) {
+            finished.countDown();
+            return;
+        }
+
+        send(workload.next(), due, result, measureFrom, measureTo)
+                .thenRun(() -> sendNext(workload, result, measureFrom, measureTo, finished));
+    }
+
+    private Result runOpen(LoadWorkload workload, int rate, Duration warmup, Duration duration) {
+        Result result = new Result();
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long measureTo = measureFrom + duration.toNanos();
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+
+        for (long due = System.nanoTime(); due < measureTo; due += interval) {
+            while (System.nanoTime() < due) {
+                LockSupport.parkNanos(due - System.nanoTime());
+            }
+            pending.add(send(workload.next(), due, result, measureFrom, measureTo));
+            pending.removeIf(CompletableFuture::isDone);
+        }
+        pending.forEach(CompletableFuture::join);
+        return result;
+    }
+
+    /**
+     * Sends the request and records it if it was due inside the measured window, however late it completes.
+     */
+    private CompletableFuture<Void> send(Endpoint endpoint, long due, Result result, long measureFrom,
+                                         long measureTo) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(context.getBaseUrl() + endpoint.path(itemCount)))
+                .header("X-Sharer-User-Id", String.valueOf(endpoint.isOwners()
+                        ? context.getOwnerId() : context.getBookerId()))
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+
+        return http.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    long completed = System.nanoTime();
+
+                    if (due >= measureFrom) {
+                        result.record(endpoint, TimeUnit.NANOSECONDS.toMicros(completed - due),
+                                error != null || response.statusCode() != 200);
+                    }
+                    return null;
+                });
+    }
+
+    private static final class Result {
+        private final Map<Endpoint, Histogram> latencies = new EnumMap<>(Endpoint.class);
+        private final Map<Endpoint, LongAdder> errors = new EnumMap<>(Endpoint.class);
+
+        Result() {
+            for (Endpoint endpoint : Endpoint.values()) {
+                latencies.put(endpoint, new ConcurrentHistogram(MAX_LATENCY_MICROS, 3));
+                errors.put(endpoint, new LongAdder());
+            }
+        }
+
+        void record(Endpoint endpoint, long micros, boolean error) {
+            latencies.get(endpoint).recordValue(Math.min(micros, MAX_LATENCY_MICROS));
+
+            if (error) {
+                errors.get(endpoint).increment();
+            }
+        }
+
+        Histogram total() {
+            Histogram total = new Histogram(MAX_LATENCY_MICROS, 3);
+            latencies.values().forEach(total::add);
+            return total;
+        }
+
+        void print(String run, Duration duration) {
+            System.out.println(run);
+            for (Endpoint endpoint : Endpoint.values()) {
+                print(endpoint.getTitle(), latencies.get(endpoint), errors.get(endpoint).sum(), duration);
+            }
+            print("total", total(), errors.values().stream().mapToLong(LongAdder::sum).sum(), duration);
+        }
+
+        private static void print(String title, Histogram histogram, long errors, Duration duration) {
+            System.out.printf("  %-20s %9.1f req/s  p50 %8.2f  p90 %8.2f  p99 %8.2f  p99.9 %8.2f  max %8.2f ms"
+                            + "  errors %d%n", title, histogram.getTotalCount() / (double) duration.toSeconds(),
+                    millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+                    histogram.getMaxValue() / MICROS_PER_MILLI, errors);
+        }
+
+        List<Map<String, Object>> write(Path dir, String run, LoadWorkload workload, Duration duration)
+                throws IOException {
+            Files.createDirectories(dir);
+
+            List<Map<String, Object>> rows = new ArrayList<>();
+
+            for (Endpoint endpoint : Endpoint.values()) {
+                Histogram histogram = latencies.get(endpoint);
+
+                if (histogram.getTotalCount() > 0) {
+                    String name = endpoint.name().toLowerCase(Locale.ROOT).replace('_', '-');
+
+                    writeDistribution(dir.resolve(run + "-" + name + ".hgrm"), histogram);
+                    rows.add(row(run, workload, endpoint.getTitle(), histogram, errors.get(endpoint).sum(),
+                            duration));
+                }
+            }
+
+            Histogram total = total();
+
+            writeDistribution(dir.resolve(run + ".hgrm"), total);
+            rows.add(row(run, workload, "total", total, errors.values().stream().mapToLong(LongAdder::sum).sum(),
+                    duration));
+            return rows;
+        }
+
+        private static void writeDistribution(Path file, Histogram histogram) throws IOException {
+            try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+                histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+            }
+        }
+
+        private static Map<String, Object> row(String run, LoadWorkload workload, String endpoint,
+                                               Histogram histogram, long errors, Duration duration) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("run", run);
+            row.put("workload", workload.getName());
+            row.put("endpoint", endpoint);
+            row.put("requests", histogram.getTotalCount());
+            row.put("errors", errors);
+            row.put("throughput", histogram.getTotalCount() / (double) duration.toSeconds());
+            row.put("p50Ms", millis(histogram, 50));
+            row.put("p90Ms", millis(histogram, 90));
+            row.put("p99Ms", millis(histogram, 99));
+            row.put("p999Ms", millis(histogram, 99.9));
+            row.put("maxMs", histogram.getMaxValue() / MICROS_PER_MILLI);
+            return row;
+        }
+
+        private static double millis(Histogram histogram, double percentile) {
+            return histogram.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+        }
+    }
+}
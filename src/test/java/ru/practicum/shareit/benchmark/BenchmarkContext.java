@@ -0,0 +1,155 @@
+package ru.practicum.shareit.benchmark;
+
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.ShareItApp;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.comment.Comment;
+import ru.practicum.shareit.comment.CommentRepository;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts the application without the web layer on a private H2 database and seeds it.
+ */
+final class BenchmarkContext {
+    private final ConfigurableApplicationContext context;
+    private long ownerId;
+    private long bookerId;
+    private final List<Long> itemIds = new ArrayList<>();
+
+    private BenchmarkContext(ConfigurableApplicationContext context) {
+        this.context = context;
+    }
+
+    static BenchmarkContext start(String database, String... args) {
+        return start(database, WebApplicationType.NONE, List.of(), args);
+    }
+
+    /**
+     * Starts the application with the embedded web server on a random port, extra arguments override properties.
+     */
+    static BenchmarkContext startServer(String database, String... args) {
+        return start(database, WebApplicationType.SERVLET, List.of(), args);
+    }
+
+    static BenchmarkContext startServer(String database, ApplicationContextInitializer<?> initializer,
+                                        String... args) {
+        return start(database, WebApplicationType.SERVLET, List.of(initializer), args);
+    }
+
+    private static BenchmarkContext start(String database, WebApplicationType type,
+                                          List<ApplicationContextInitializer<?>> initializers, String... extra) {
+        List<String> args = new ArrayList<>(List.of("--spring.datasource.url=jdbc:h2:mem:" + database,
+                "--server.port=0",
+                "--shareit.rate-limit.enabled=false",
+                "--spring.jpa.properties.hibernate.show_sql=false",
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--logging.level.root=WARN",
+                "--logging.level.org.hibernate.SQL=WARN",
+                "--logging.level.org.springframework.transaction.interceptor=WARN",
+                "--logging.level.org.springframework.orm.jpa.JpaTransactionManager=WARN"));
+        args.addAll(List.of(extra));
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(ShareItApp.class)
+                .profiles("test")
+                .web(type)
+                .bannerMode(Banner.Mode.OFF)
+                .initializers(initializers.toArray(new ApplicationContextInitializer<?>[0]))
+                .run(args.toArray(new String[0]));
+        return new BenchmarkContext(context);
+    }
+
+    /**
+     * Creates one owner with the given number of items and one booker with bookings spread over the past,
+     * present and future of every item.
+     */
+    BenchmarkContext seed(int itemCount, int bookingsPerItem) {
+        TransactionTemplate transactionTemplate = context.getBean(TransactionTemplate.class);
+        UserRepository userStorage = context.getBean(UserRepository.class);
+        ItemRepository itemStorage = context.getBean(ItemRepository.class);
+        BookingRepository bookingStorage = context.getBean(BookingRepository.class);
+        CommentRepository commentStorage = context.getBean(CommentRepository.class);
+        BookingStatus[] statuses = BookingStatus.values();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            User owner = userStorage.save(user("owner"));
+            User booker = userStorage.save(user("booker"));
+            LocalDateTime now = LocalDateTime.now();
+            List<Booking> bookings = new ArrayList<>();
+
+            for (int i = 0; i < itemCount; i++) {
+                Item item = new Item();
+                item.setName("Item " + i);
+                item.setDescription("Benchmark item " + i);
+                item.setAvailable(true);
+                item.setOwner(owner);
+                itemStorage.save(item);
+                itemIds.add(item.getId());
+
+                for (int j = 0; j < bookingsPerItem; j++) {
+                    Booking booking = new Booking();
+                    booking.setItem(item);
+                    booking.setBooker(booker);
+                    booking.setStart(now.plusHours(3L * (j - bookingsPerItem / 2)));
+                    booking.setEnd(booking.getStart().plusHours(2));
+                    booking.setStatus(statuses[j % statuses.length]);
+                    bookings.add(booking);
+                }
+
+                Comment comment = new Comment();
+                comment.setText("Comment " + i);
+                comment.setItem(item);
+                comment.setAuthor(booker);
+                comment.setCreated(now);
+                commentStorage.save(comment);
+            }
+            bookingStorage.saveAll(bookings);
+            ownerId = owner.getId();
+            bookerId = booker.getId();
+        });
+        return this;
+    }
+
+    <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    String getBaseUrl() {
+        return "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+    }
+
+    long getOwnerId() {
+        return ownerId;
+    }
+
+    long getBookerId() {
+        return bookerId;
+    }
+
+    List<Long> getItemIds() {
+        return itemIds;
+    }
+
+    void close() {
+        context.close();
+    }
+
+    private static User user(String name) {
+        User user = new User();
+        user.setName(name);
+        user.setEmail(name + "@benchmark.ru");
+        return user;
+    }
+}
@@ -0,0 +1,90 @@
+package ru.practicum.shareit.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingService;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.user.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Approves bookings of a single item from several threads, so every approval contends for the same item version.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class BookingApprovalBenchmark {
+    private final AtomicLong slot = new AtomicLong();
+    private BenchmarkContext context;
+    private BookingService bookingService;
+    private BookingRepository bookingStorage;
+    private ItemRepository itemStorage;
+    private UserRepository userStorage;
+    private TransactionTemplate transactionTemplate;
+    private LocalDateTime start;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("approval-benchmark").seed(1, 0);
+        bookingService = context.getBean(BookingService.class);
+        bookingStorage = context.getBean(BookingRepository.class);
+        itemStorage = context.getBean(ItemRepository.class);
+        userStorage = context.getBean(UserRepository.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        start = LocalDateTime.now().plusDays(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class WaitingBooking {
+        private long id;
+
+        @Setup(Level.Invocation)
+        public void create(BookingApprovalBenchmark benchmark) {
+            id = benchmark.waitingBooking();
+        }
+    }
+
+    @Benchmark
+    public Booking approve(WaitingBooking booking) {
+        return bookingService.checkRequest(context.getOwnerId(), booking.id, true);
+    }
+
+    private long waitingBooking() {
+        return transactionTemplate.execute(status -> {
+            Booking booking = new Booking();
+            booking.setItem(itemStorage.getReferenceById(context.getItemIds().get(0)));
+            booking.setBooker(userStorage.getReferenceById(context.getBookerId()));
+            booking.setStart(start.plusHours(2 * slot.getAndIncrement()));
+            booking.setEnd(booking.getStart().plusHours(1));
+            booking.setStatus(BookingStatus.WAITING);
+            return bookingStorage.save(booking).getId();
+        });
+    }
+}
@@ -0,0 +1,61 @@
+package ru.practicum.shareit.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.shareit.booking.BookingService;
+import ru.practicum.shareit.booking.dto.BookingDtoOut;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures booker and owner listings per state, which filter, sort and page in the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookingServiceBenchmark {
+    @Param({"10000"})
+    private int bookingCount;
+
+    @Param({"ALL", "CURRENT", "PAST", "FUTURE", "WAITING"})
+    private String state;
+
+    private BenchmarkContext context;
+    private BookingService bookingService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("booking-benchmark").seed(100, bookingCount / 100);
+        bookingService = context.getBean(BookingService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<BookingDtoOut> getBookingsByStatus() {
+        return bookingService.getBookingsByStatus(context.getBookerId(), state, 0, 10, null).getContent();
+    }
+
+    @Benchmark
+    public List<BookingDtoOut> getUserBookings() {
+        return bookingService.getUserBookings(context.getOwnerId(), state, 0, 10, null).getContent();
+    }
+}
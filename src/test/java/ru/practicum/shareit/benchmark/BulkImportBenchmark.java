@@ -0,0 +1,126 @@
+package ru.practicum.shareit.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports the same records over HTTP as partners do today, one POST per record,
+ * and with a single call of the bulk endpoint.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BulkImportBenchmark {
+    @Param({"1000"})
+    private int recordCount;
+
+    private BenchmarkContext context;
+    private HttpClient client;
+    private ObjectMapper objectMapper;
+    private long run;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.startServer("import-benchmark").seed(1, 0);
+        client = HttpClient.newHttpClient();
+        objectMapper = context.getBean(ObjectMapper.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int usersOneByOne() throws Exception {
+        int created = 0;
+
+        for (Map<String, Object> user : users()) {
+            created += post("/users", user);
+        }
+        return created;
+    }
+
+    @Benchmark
+    public int usersBulk() throws Exception {
+        return post("/users/bulk", users());
+    }
+
+    @Benchmark
+    public int itemsOneByOne() throws Exception {
+        int created = 0;
+
+        for (Map<String, Object> item : items()) {
+            created += post("/items", item);
+        }
+        return created;
+    }
+
+    @Benchmark
+    public int itemsBulk() throws Exception {
+        return post("/items/bulk", items());
+    }
+
+    private int post(String path, Object body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(context.getBaseUrl() + path))
+                .header("Content-Type", "application/json")
+                .header("X-Sharer-User-Id", String.valueOf(context.getOwnerId()))
+                .POST(HttpRequest.BodyPublishers.ofString(json(body)))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Import failed: " + response.statusCode() + " " + response.body());
+        }
+        return response.body().length();
+    }
+
+    private String json(Object body) throws JsonProcessingException {
+        return objectMapper.writeValueAsString(body);
+    }
+
+    private List<Map<String, Object>> users() {
+        long prefix = run++;
+        List<Map<String, Object>> users = new ArrayList<>(recordCount);
+
+        for (int i = 0; i < recordCount; i++) {
+            users.add(Map.of("name", "User " + i, "email", prefix + "-" + i + "@import.ru"));
+        }
+        return users;
+    }
+
+    private List<Map<String, Object>> items() {
+        List<Map<String, Object>> items = new ArrayList<>(recordCount);
+
+        for (int i = 0; i < recordCount; i++) {
+            items.add(Map.of("name", "Item " + i, "description", "Imported item " + i, "available", true));
+        }
+        return items;
+    }
+}
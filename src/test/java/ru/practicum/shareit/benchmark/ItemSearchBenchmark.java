@@ -0,0 +1,107 @@
+package ru.practicum.shareit.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.search.IndexedItemSearchEngine;
+import ru.practicum.shareit.item.search.ItemSearchEngine;
+import ru.practicum.shareit.item.search.LikeItemSearchEngine;
+import ru.practicum.shareit.pagination.CursorPage;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the LIKE engine against the trigram index engine on the same generated catalogue. Both go through
+ * ItemSearchEngine.search, so the index engine pays for loading the hit entities as the endpoint does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class ItemSearchBenchmark {
+    private static final String[] WORDS = {"drill", "saw", "hammer", "ladder", "tent", "bike", "kayak", "camera",
+            "tripod", "projector", "speaker", "mixer", "grill", "table", "chair", "lamp", "heater", "vacuum",
+            "sander", "router", "wrench", "jack", "pump", "board", "helmet", "skates", "stroller", "scooter"};
+    private static final int PAGE_SIZE = 10;
+
+    @Param({"1000000"})
+    private int itemCount;
+
+    @Param({"kayak", "ump"})
+    private String text;
+
+    private BenchmarkContext context;
+    private ItemSearchEngine likeEngine;
+    private IndexedItemSearchEngine indexedEngine;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        // the LIKE engine, so the application doesn't build an index of its own next to the benchmarked one
+        context = BenchmarkContext.start("search-benchmark", "--shareit.search.engine=like");
+        ItemRepository itemStorage = context.getBean(ItemRepository.class);
+        Random random = new Random(42);
+
+        try (Connection connection = context.getBean(DataSource.class).getConnection();
+             PreparedStatement insert = connection.prepareStatement("INSERT INTO items " +
+                     "(item_id, item_name, item_description, is_available) VALUES (?, ?, ?, ?)")) {
+            for (int id = 1; id <= itemCount; id++) {
+                String name = word(random) + " " + word(random);
+                String description = "Good " + word(random) + " with " + word(random) + " and " + word(random);
+                boolean available = random.nextInt(10) > 0;
+
+                insert.setLong(1, id);
+                insert.setString(2, name);
+                insert.setString(3, description);
+                insert.setBoolean(4, available);
+                insert.addBatch();
+
+                if (id % 10_000 == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+
+        likeEngine = new LikeItemSearchEngine(itemStorage);
+        indexedEngine = new IndexedItemSearchEngine(itemStorage);
+        indexedEngine.load();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public CursorPage<Item> like() {
+        return likeEngine.search(text, null, 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public CursorPage<Item> ngram() {
+        return indexedEngine.search(text, null, 0, PAGE_SIZE);
+    }
+
+    private static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+}
@@ -0,0 +1,67 @@
+package ru.practicum.shareit.benchmark;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Set;
+
+/**
+ * Adds a fixed delay to every statement execution, standing in for the network round trip to a real database.
+ * The in-memory H2 database answers in microseconds, so without it request threads would never block on JDBC.
+ */
+final class JdbcLatency implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+    private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeBatch", "executeLargeUpdate", "executeLargeBatch");
+
+    private final long millis;
+
+    JdbcLatency(long millis) {
+        this.millis = millis;
+    }
+
+    @Override
+    public void initialize(ConfigurableApplicationContext context) {
+        context.getBeanFactory().addBeanPostProcessor(new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource ? wrap(DataSource.class, bean) : bean;
+            }
+        });
+    }
+
+    private Object wrap(Class<?> type, Object target) {
+        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type},
+                (instance, method, args) -> {
+                    if (EXECUTE_METHODS.contains(method.getName())) {
+                        Thread.sleep(millis);
+                    }
+
+                    Object result = invoke(target, method, args);
+
+                    if (result instanceof Connection) {
+                        return wrap(Connection.class, result);
+                    }
+                    if (result instanceof Statement) {
+                        Class<?> statementType = method.getReturnType().isInterface()
+                                ? method.getReturnType() : Statement.class;
+                        return wrap(statementType, result);
+                    }
+                    return result;
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
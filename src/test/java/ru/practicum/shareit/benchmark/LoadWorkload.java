@@ -0,0 +1,91 @@
+package ru.practicum.shareit.benchmark;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Mixes of read endpoints sent by ApiLoadRunner, each endpoint is picked with the probability of its weight.
+ */
+enum LoadWorkload {
+    BOOKER_HEAVY(Map.of(Endpoint.BOOKER_BOOKINGS, 70, Endpoint.OWNER_BOOKINGS, 10, Endpoint.OWNER_ITEMS, 10,
+            Endpoint.SEARCH, 10)),
+    OWNER_HEAVY(Map.of(Endpoint.BOOKER_BOOKINGS, 10, Endpoint.OWNER_BOOKINGS, 50, Endpoint.OWNER_ITEMS, 30,
+            Endpoint.SEARCH, 10)),
+    SEARCH_HEAVY(Map.of(Endpoint.BOOKER_BOOKINGS, 10, Endpoint.OWNER_BOOKINGS, 5, Endpoint.OWNER_ITEMS, 5,
+            Endpoint.SEARCH, 80));
+
+    private final Endpoint[] endpoints;
+    private final int[] cumulativeWeights;
+
+    LoadWorkload(Map<Endpoint, Integer> weights) {
+        Map<Endpoint, Integer> ordered = new EnumMap<>(weights);
+
+        endpoints = ordered.keySet().toArray(new Endpoint[0]);
+        cumulativeWeights = new int[endpoints.length];
+
+        int total = 0;
+
+        for (int i = 0; i < endpoints.length; i++) {
+            total += ordered.get(endpoints[i]);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    /**
+     * Accepts names as written in properties, like booker-heavy.
+     */
+    static LoadWorkload parse(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+
+    String getName() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    Endpoint next() {
+        int point = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int index = Arrays.binarySearch(cumulativeWeights, point + 1);
+
+        return endpoints[index >= 0 ? index : -index - 1];
+    }
+
+    enum Endpoint {
+        BOOKER_BOOKINGS("GET /bookings"),
+        OWNER_BOOKINGS("GET /bookings/owner"),
+        OWNER_ITEMS("GET /items"),
+        SEARCH("GET /items/search");
+
+        private final String title;
+
+        Endpoint(String title) {
+            this.title = title;
+        }
+
+        String getTitle() {
+            return title;
+        }
+
+        /**
+         * Returns the path with query of a request, the user header is chosen by the caller.
+         */
+        String path(int itemCount) {
+            switch (this) {
+                case BOOKER_BOOKINGS:
+                    return "/bookings?state=ALL&size=10";
+                case OWNER_BOOKINGS:
+                    return "/bookings/owner?state=ALL&size=10";
+                case OWNER_ITEMS:
+                    return "/items?size=10";
+                default:
+                    return "/items/search?size=10&text=item%20" + ThreadLocalRandom.current().nextInt(itemCount);
+            }
+        }
+
+        boolean isOwners() {
+            return this == OWNER_BOOKINGS || this == OWNER_ITEMS;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package ru.practicum.shareit.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingMapper;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.dto.BookingDtoOut;
+import ru.practicum.shareit.booking.dto.BookingForOwnerDto;
+import ru.practicum.shareit.comment.Comment;
+import ru.practicum.shareit.comment.CommentDto;
+import ru.practicum.shareit.comment.CommentMapper;
+import ru.practicum.shareit.item.ItemMapper;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemForOwnerDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.User;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+    private final ItemMapper itemMapper = new ItemMapper();
+    private final BookingMapper bookingMapper = new BookingMapper();
+    private final CommentMapper commentMapper = new CommentMapper();
+
+    private Item item;
+    private ItemDto itemDto;
+    private Booking booking;
+    private Comment comment;
+
+    @Setup
+    public void setUp() {
+        User user = new User();
+        user.setId(1);
+        user.setName("User");
+        user.setEmail("user@mail.ru");
+
+        item = new Item();
+        item.setId(1);
+        item.setName("Drill");
+        item.setDescription("Cordless drill");
+        item.setAvailable(true);
+        item.setOwner(user);
+        itemDto = itemMapper.toDto(item);
+
+        booking = new Booking();
+        booking.setId(1);
+        booking.setItem(item);
+        booking.setBooker(user);
+        booking.setStart(LocalDateTime.now());
+        booking.setEnd(booking.getStart().plusDays(1));
+        booking.setStatus(BookingStatus.APPROVED);
+
+        comment = new Comment();
+        comment.setId(1);
+        comment.setText("Works well");
+        comment.setItem(item);
+        comment.setAuthor(user);
+        comment.setCreated(LocalDateTime.now());
+    }
+
+    @Benchmark
+    public ItemDto itemToDto() {
+        return itemMapper.toDto(item);
+    }
+
+    @Benchmark
+    public ItemForOwnerDto itemToOwnerDto() {
+        return itemMapper.toOwnerDto(item);
+    }
+
+    @Benchmark
+    public Item itemToEntity() {
+        return itemMapper.toEntity(itemDto);
+    }
+
+    @Benchmark
+    public BookingDtoOut bookingToDto() {
+        return bookingMapper.toDto(booking);
+    }
+
+    @Benchmark
+    public BookingForOwnerDto bookingToOwnerDto() {
+        return bookingMapper.toOwnerDto(booking);
+    }
+
+    @Benchmark
+    public CommentDto commentToDto() {
+        return commentMapper.toDto(comment);
+    }
+}
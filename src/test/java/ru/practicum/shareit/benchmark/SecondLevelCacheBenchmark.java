@@ -0,0 +1,100 @@
+package ru.practicum.shareit.benchmark;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.shareit.item.ItemService;
+import ru.practicum.shareit.item.dto.ItemForOwnerDto;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads item cards with the second-level cache on and off, reporting the statements sent to the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SecondLevelCacheBenchmark {
+    @Param({"100"})
+    private int itemCount;
+
+    @Param({"true", "false"})
+    private boolean secondLevelCache;
+
+    private BenchmarkContext context;
+    private ItemService itemService;
+    private Statistics statistics;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("l2-cache-benchmark", "--shareit.l2-cache.enabled=" + secondLevelCache)
+                .seed(itemCount, 4);
+        itemService = context.getBean(ItemService.class);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ItemForOwnerDto getById(RoundTrips roundTrips) {
+        List<Long> itemIds = context.getItemIds();
+        long before = statistics.getPrepareStatementCount();
+        ItemForOwnerDto item = itemService.getById(itemIds.get(ThreadLocalRandom.current().nextInt(itemIds.size())),
+                context.getBookerId());
+
+        roundTrips.add(statistics.getPrepareStatementCount() - before);
+        return item;
+    }
+
+    @Benchmark
+    public List<ItemForOwnerDto> getItemsByUserId(RoundTrips roundTrips) {
+        long before = statistics.getPrepareStatementCount();
+        List<ItemForOwnerDto> items = itemService.getItemsByUserId(context.getOwnerId(), null, 20).getContent();
+
+        roundTrips.add(statistics.getPrepareStatementCount() - before);
+        return items;
+    }
+
+    /**
+     * Statements and calls per iteration, JMH reports them next to the time of an operation.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RoundTrips {
+        public long statements;
+        public long calls;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            statements = 0;
+            calls = 0;
+        }
+
+        void add(long count) {
+            statements += count;
+            calls++;
+        }
+    }
+}
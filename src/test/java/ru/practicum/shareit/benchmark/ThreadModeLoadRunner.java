@@ -0,0 +1,184 @@
+package ru.practicum.shareit.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives the same closed-loop load against the server on the Tomcat thread pool and on virtual threads.
+ * Every client sends its next request as soon as the previous one completes, alternating item cards
+ * and booking listings, while JdbcLatency makes each statement wait like a remote database would.
+ *
+ * <p>Settings are system properties: loadtest.modes, loadtest.clients, loadtest.warmup, loadtest.duration,
+ * loadtest.db-latency-ms, loadtest.pool-size and loadtest.report-dir. The virtual mode needs a Java 21 runtime.
+ * The report directory gets thread-modes.json with the settings, the runtime and the result of every mode.
+ */
+public final class ThreadModeLoadRunner {
+    private static final int MAX_LATENCY_MS = 60_000;
+
+    private ThreadModeLoadRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> modes = List.of(System.getProperty("loadtest.modes", "platform,virtual").split(","));
+        int clients = Integer.getInteger("loadtest.clients", 1000);
+        Duration warmup = Duration.parse(System.getProperty("loadtest.warmup", "PT15S"));
+        Duration duration = Duration.parse(System.getProperty("loadtest.duration", "PT30S"));
+        long dbLatency = Long.getLong("loadtest.db-latency-ms", 5);
+        int poolSize = Integer.getInteger("loadtest.pool-size", 100);
+        Path reportDir = Path.of(System.getProperty("loadtest.report-dir", "target/loadtest"));
+        List<Map<String, Object>> results = new ArrayList<>();
+        Map<String, Object> report = new LinkedHashMap<>();
+
+        System.out.printf("clients=%d, warmup=%s, duration=%s, db latency=%dms, pool size=%d, java=%s%n",
+                clients, warmup, duration, dbLatency, poolSize, System.getProperty("java.version"));
+        report.put("java", System.getProperty("java.vm.name") + " " + System.getProperty("java.version"));
+        report.put("cpus", Runtime.getRuntime().availableProcessors());
+        report.put("clients", clients);
+        report.put("warmup", warmup.toString());
+        report.put("duration", duration.toString());
+        report.put("dbLatencyMs", dbLatency);
+        report.put("poolSize", poolSize);
+        report.put("results", results);
+
+        for (String mode : modes) {
+            BenchmarkContext context = BenchmarkContext.startServer("load-" + mode, new JdbcLatency(dbLatency),
+                            "--shareit.threads.virtual=" + "virtual".equals(mode),
+                            "--spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                            "--server.tomcat.accept-count=" + clients)
+                    .seed(100, 20);
+            try {
+                Result result = run(context, clients, warmup, duration);
+                double throughput = result.requests.sum() / (double) duration.toSeconds();
+                System.out.printf("%-8s %10.1f req/s  p50 %5d ms  p99 %5d ms  errors %d  peak platform threads %d%n",
+                        mode, throughput, result.percentile(0.5), result.percentile(0.99), result.errors.sum(),
+                        result.peakThreads);
+
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("mode", mode);
+                row.put("requestsPerSecond", throughput);
+                row.put("p50Ms", result.percentile(0.5));
+                row.put("p99Ms", result.percentile(0.99));
+                row.put("errors", result.errors.sum());
+                row.put("peakPlatformThreads", result.peakThreads);
+                results.add(row);
+            } finally {
+                context.close();
+            }
+        }
+        Files.createDirectories(reportDir);
+        new ObjectMapper().writerWithDefaultPrettyPrinter()
+                .writeValue(reportDir.resolve("thread-modes.json").toFile(), report);
+    }
+
+    private static Result run(BenchmarkContext context, int clients, Duration warmup, Duration duration)
+            throws InterruptedException {
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(4);
+        HttpClient http = HttpClient.newBuilder()
+                .executor(clientExecutor)
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        Result result = new Result();
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long measureTo = measureFrom + duration.toNanos();
+        CountDownLatch finished = new CountDownLatch(clients);
+
+        ManagementFactory.getThreadMXBean().resetPeakThreadCount();
+        for (int i = 0; i < clients; i++) {
+            send(http, context, i, result, measureFrom, measureTo, finished);
+        }
+        finished.await(warmup.plus(duration).toSeconds() + 60, TimeUnit.SECONDS);
+        result.peakThreads = ManagementFactory.getThreadMXBean().getPeakThreadCount();
+        clientExecutor.shutdownNow();
+        return result;
+    }
+
+    private static void send(HttpClient http, BenchmarkContext context, int client, Result result,
+                             long measureFrom, long measureTo, CountDownLatch finished) {
+        long sent = System.nanoTime();
+
+        if (sent >= measureTo) {
+            finished.countDown();
+            return;
+        }
+
+        http.sendAsync(request(context, client), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    long completed = System.nanoTime();
+
+                    if (sent >= measureFrom && completed < measureTo) {
+                        result.record(TimeUnit.NANOSECONDS.toMillis(completed - sent),
+                                error != null || response.statusCode() != 200);
+                    }
+                    send(http, context, client, result, measureFrom, measureTo, finished);
+                });
+    }
+
+    private static HttpRequest request(BenchmarkContext context, int client) {
+        String path;
+        long userId;
+
+        if (client % 2 == 0) {
+            List<Long> itemIds = context.getItemIds();
+            path = "/items/" + itemIds.get(ThreadLocalRandom.current().nextInt(itemIds.size()));
+            userId = context.getOwnerId();
+        } else {
+            path = "/bookings?state=ALL&size=10";
+            userId = context.getBookerId();
+        }
+        return HttpRequest.newBuilder(URI.create(context.getBaseUrl() + path))
+                .header("X-Sharer-User-Id", String.valueOf(userId))
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+    }
+
+    private static final class Result {
+        private final AtomicLongArray latencies = new AtomicLongArray(MAX_LATENCY_MS + 1);
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private int peakThreads;
+
+        void record(long millis, boolean error) {
+            latencies.incrementAndGet((int) Math.min(millis, MAX_LATENCY_MS));
+            requests.increment();
+
+            if (error) {
+                errors.increment();
+            }
+        }
+
+        long percentile(double percentile) {
+            long total = requests.sum();
+            long seen = 0;
+
+            for (int i = 0; i < latencies.length(); i++) {
+                seen += latencies.get(i);
+
+                if (seen >= total * percentile) {
+                    return i;
+                }
+            }
+            return MAX_LATENCY_MS;
+        }
+    }
+}
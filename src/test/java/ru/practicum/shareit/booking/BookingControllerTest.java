@@ -0,0 +1,209 @@
+package ru.practicum.shareit.booking;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.TestFixtures;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.pagination.CursorPage;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "shareit.pagination.unpaged-size=" + BookingControllerTest.UNPAGED_SIZE)
+@AutoConfigureMockMvc
+class BookingControllerTest {
+    static final int UNPAGED_SIZE = 8;
+    private static final int ITEMS = 5;
+
+    @Autowired
+    private TestFixtures fixtures;
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserRepository userStorage;
+    @Autowired
+    private ItemRepository itemStorage;
+    @Autowired
+    private BookingRepository bookingStorage;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User owner;
+    private User booker;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        transactionTemplate.executeWithoutResult(status -> {
+            owner = fixtures.createUser("Owner");
+            booker = fixtures.createUser("Booker");
+            LocalDateTime now = LocalDateTime.now();
+
+            for (int i = 0; i < ITEMS; i++) {
+                Item item = fixtures.createItem(owner, "Item " + i, "Description " + i);
+
+                fixtures.createBooking(item, booker, now.plusDays(i + 1), now.plusDays(i + 2), BookingStatus.WAITING);
+            }
+        });
+    }
+
+    @Test
+    void listsRunOneStatementAndKeepEntityShape() throws Exception {
+        statistics.clear();
+        mockMvc.perform(get("/bookings").header("X-Sharer-User-Id", booker.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(ITEMS))
+                .andExpect(jsonPath("$[0].status").value("WAITING"))
+                .andExpect(jsonPath("$[0].item.name").value("Item " + (ITEMS - 1)))
+                .andExpect(jsonPath("$[0].item.available").value(true))
+                .andExpect(jsonPath("$[0].item.owner.email").value(owner.getEmail()))
+                .andExpect(jsonPath("$[0].booker.id").value(booker.getId()))
+                .andExpect(jsonPath("$[0].booker.name").value("Booker"));
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        mockMvc.perform(get("/bookings/owner").header("X-Sharer-User-Id", owner.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(ITEMS));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void listsWithoutSizeOrCursorAreCutAtUnpagedSize() throws Exception {
+        int count = UNPAGED_SIZE + 4;
+        transactionTemplate.executeWithoutResult(status -> {
+            Item item = itemStorage.findByOwnerId(owner.getId()).get(0);
+            User bookerRef = userStorage.getReferenceById(booker.getId());
+            LocalDateTime now = LocalDateTime.now();
+
+            for (int i = ITEMS; i < count; i++) {
+                fixtures.createBooking(item, bookerRef, now.plusDays(10 + i), now.plusDays(11 + i),
+                        BookingStatus.WAITING);
+            }
+        });
+
+        String cursor = mockMvc.perform(get("/bookings").header("X-Sharer-User-Id", booker.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(UNPAGED_SIZE))
+                .andExpect(header().exists(CursorPage.NEXT_CURSOR_HEADER))
+                .andReturn().getResponse().getHeader(CursorPage.NEXT_CURSOR_HEADER);
+        mockMvc.perform(get("/bookings/owner").header("X-Sharer-User-Id", owner.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(UNPAGED_SIZE))
+                .andExpect(header().exists(CursorPage.NEXT_CURSOR_HEADER));
+
+        // a cursor without size continues with pages of the default size
+        mockMvc.perform(get("/bookings").header("X-Sharer-User-Id", booker.getId()).param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(count - UNPAGED_SIZE))
+                .andExpect(header().doesNotExist(CursorPage.NEXT_CURSOR_HEADER));
+        mockMvc.perform(get("/bookings").header("X-Sharer-User-Id", booker.getId())
+                        .param("size", String.valueOf(count)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(count));
+    }
+
+    @Test
+    void emptyListsStillRejectUnknownUsers() throws Exception {
+        mockMvc.perform(get("/bookings").header("X-Sharer-User-Id", -1))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/bookings/owner").header("X-Sharer-User-Id", booker.getId()))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/bookings").header("X-Sharer-User-Id", owner.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    void repeatedCreationWithIdempotencyKeyReturnsOriginalBooking() throws Exception {
+        long itemId = itemStorage.findByOwnerId(owner.getId()).get(0).getId();
+        LocalDateTime start = LocalDateTime.now().plusDays(30).withNano(0);
+        String body = bookingJson(itemId, start);
+
+        String first = mockMvc.perform(post("/bookings").header("X-Sharer-User-Id", booker.getId())
+                        .header("Idempotency-Key", "retry-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        statistics.clear();
+        mockMvc.perform(post("/bookings").header("X-Sharer-User-Id", booker.getId())
+                        .header("Idempotency-Key", "retry-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(content().json(first, true));
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        mockMvc.perform(post("/bookings").header("X-Sharer-User-Id", booker.getId())
+                        .header("Idempotency-Key", "retry-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(bookingJson(itemId, start.plusDays(1))))
+                .andExpect(status().isUnprocessableEntity());
+        assertEquals(ITEMS + 1, bookingStorage.count());
+    }
+
+    @Test
+    void bulkDecisionsApproveBookingsOfManyItemsWithOneUpdate() throws Exception {
+        List<Long> bookingIds = bookingStorage.findAll().stream()
+                .filter(x -> x.getItem().getOwner().getId() == owner.getId())
+                .map(Booking::getId)
+                .sorted()
+                .collect(Collectors.toList());
+        String body = bookingIds.stream()
+                .map(x -> "{\"bookingId\": " + x + ", \"approved\": true}")
+                .collect(Collectors.joining(", ", "[", "]"));
+
+        statistics.clear();
+        mockMvc.perform(patch("/bookings").header("X-Sharer-User-Id", owner.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(ITEMS))
+                .andExpect(jsonPath("$[0].id").value(bookingIds.get(0)))
+                .andExpect(jsonPath("$[0].errors").doesNotExist());
+
+        // statuses are set by one bulk update rather than entity by entity
+        assertEquals(0, statistics.getEntityStatistics(Booking.class.getName()).getUpdateCount());
+        // nothing grows with the batch: the items have no summaries to bump yet, theirs are inserted in one batch
+        assertEquals(10, statistics.getPrepareStatementCount());
+        mockMvc.perform(get("/bookings/owner").header("X-Sharer-User-Id", owner.getId())
+                        .param("state", "WAITING"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(patch("/bookings").header("X-Sharer-User-Id", owner.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static String bookingJson(long itemId, LocalDateTime start) {
+        return "{\"itemId\": " + itemId + ", \"start\": \"" + start + "\", \"end\": \"" + start.plusDays(1) + "\"}";
+    }
+}
@@ -0,0 +1,589 @@
+package ru.practicum.shareit.booking;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.TestFixtures;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDtoIn;
+import ru.practicum.shareit.booking.dto.BookingDtoOut;
+import ru.practicum.shareit.bulk.BulkResult;
+import ru.practicum.shareit.exception.AvailabilityException;
+import ru.practicum.shareit.exception.ItemNotExistException;
+import ru.practicum.shareit.exception.PaginationException;
+import ru.practicum.shareit.exception.UpdateConflictException;
+import ru.practicum.shareit.item.ItemBookingSummaries;
+import ru.practicum.shareit.item.ItemBookingSummaryRepository;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemBookingSummary;
+import ru.practicum.shareit.pagination.CursorPage;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+import ru.practicum.shareit.user.UserService;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class BookingServiceTest {
+    @Autowired
+    private TestFixtures fixtures;
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private UserRepository userStorage;
+    @Autowired
+    private ItemRepository itemStorage;
+    @Autowired
+    private BookingRepository bookingStorage;
+    @Autowired
+    private OwnerBookingRepository ownerBookingStorage;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private BookingIntervalIndex intervalIndex;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private ItemBookingSummaries bookingSummaries;
+    @Autowired
+    private ItemBookingSummaryRepository summaryStorage;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private User owner;
+    private User booker;
+    private Item item;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            owner = fixtures.createUser();
+            booker = fixtures.createUser();
+            item = fixtures.createItem(owner);
+            LocalDateTime now = LocalDateTime.now();
+
+            fixtures.createBooking(item, booker, now.minusDays(5), now.minusDays(4), BookingStatus.APPROVED);
+            fixtures.createBooking(item, booker, now.minusDays(1), now.plusDays(1), BookingStatus.APPROVED);
+            fixtures.createBooking(item, booker, now.plusDays(1), now.plusDays(2), BookingStatus.WAITING);
+            fixtures.createBooking(item, booker, now.plusDays(3), now.plusDays(4), BookingStatus.REJECTED);
+        });
+    }
+
+    @Test
+    void getBookingsByStatusFiltersByState() {
+        assertEquals(4, bookingService.getBookingsByStatus(booker.getId(), "ALL", 0, 10, null).getContent().size());
+        assertEquals(1, bookingService.getBookingsByStatus(booker.getId(), "CURRENT", 0, 10, null).getContent().size());
+        assertEquals(1, bookingService.getBookingsByStatus(booker.getId(), "PAST", 0, 10, null).getContent().size());
+        assertEquals(2, bookingService.getBookingsByStatus(booker.getId(), "FUTURE", 0, 10, null).getContent().size());
+        assertEquals(1, bookingService.getBookingsByStatus(booker.getId(), "WAITING", 0, 10, null).getContent().size());
+        assertEquals(1, bookingService.getBookingsByStatus(booker.getId(), "REJECTED", 0, 10, null).getContent().size());
+    }
+
+    @Test
+    void getUserBookingsPagesInStartDescendingOrder() {
+        List<BookingDtoOut> firstPage = bookingService.getUserBookings(owner.getId(), "ALL", 0, 2, null).getContent();
+        List<BookingDtoOut> secondPage = bookingService.getUserBookings(owner.getId(), "ALL", 2, 2, null).getContent();
+
+        assertEquals(2, firstPage.size());
+        assertEquals(2, secondPage.size());
+        assertTrue(firstPage.get(0).getStart().isAfter(firstPage.get(1).getStart()));
+        assertTrue(firstPage.get(1).getStart().isAfter(secondPage.get(0).getStart()));
+    }
+
+    @Test
+    void getUserBookingsFollowsCursorToLastPage() {
+        CursorPage<BookingDtoOut> firstPage = bookingService.getUserBookings(owner.getId(), "ALL", 0, 3, null);
+        CursorPage<BookingDtoOut> secondPage = bookingService.getUserBookings(owner.getId(), "ALL", 0, 3,
+                firstPage.getNext().encode());
+
+        assertEquals(3, firstPage.getContent().size());
+        assertEquals(1, secondPage.getContent().size());
+        assertNull(secondPage.getNext());
+        assertTrue(firstPage.getContent().get(2).getStart().isAfter(secondPage.getContent().get(0).getStart()));
+        assertThrows(PaginationException.class,
+                () -> bookingService.getUserBookings(owner.getId(), "ALL", 0, 3, "not a cursor"));
+    }
+
+    @Test
+    void createTakesBookerAndItemFromSecondLevelCache() throws Exception {
+        LocalDateTime start = LocalDateTime.now().plusDays(70);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        userStorage.findById(booker.getId());
+        itemStorage.findById(item.getId());
+
+        statistics.clear();
+        Booking created = bookingService.create(bookingDto(start, start.plusDays(1)), booker.getId());
+
+        assertEquals(booker.getId(), created.getBooker().getId());
+        assertEquals(0, statistics.getEntityStatistics(User.class.getName()).getLoadCount());
+        assertEquals(0, statistics.getEntityStatistics(Item.class.getName()).getLoadCount());
+    }
+
+    @Test
+    void getUserBookingsFollowsStatusChangesOfOwnerBookings() throws Exception {
+        LocalDateTime start = LocalDateTime.now().plusDays(60);
+        Booking created = bookingService.create(bookingDto(start, start.plusDays(1)), booker.getId());
+
+        List<BookingDtoOut> waiting = bookingService.getUserBookings(owner.getId(), "WAITING", 0, 10, null)
+                .getContent();
+
+        assertEquals(2, waiting.size());
+        assertEquals(created.getId(), waiting.get(0).getId());
+
+        bookingService.checkRequest(owner.getId(), created.getId(), true);
+
+        assertEquals(1, bookingService.getUserBookings(owner.getId(), "WAITING", 0, 10, null).getContent().size());
+        assertEquals(BookingStatus.APPROVED,
+                bookingService.getUserBookings(owner.getId(), "FUTURE", 0, 1, null).getContent().get(0).getStatus());
+        assertEquals(BookingStatus.APPROVED, ownerBookingStorage.findById(created.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void getBookingsByStatusRejectsUnknownStateAndBadPage() {
+        assertThrows(ItemNotExistException.class,
+                () -> bookingService.getBookingsByStatus(booker.getId(), "UNKNOWN", 0, 10, null));
+        assertThrows(PaginationException.class,
+                () -> bookingService.getBookingsByStatus(booker.getId(), "ALL", -1, 10, null));
+        assertThrows(PaginationException.class,
+                () -> bookingService.getUserBookings(owner.getId(), "ALL", 0, 0, null));
+    }
+
+    @Test
+    void createAllowsOnlyOneOfConcurrentOverlappingBookings() throws Exception {
+        int threads = 8;
+        List<User> bookers = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < threads; i++) {
+                bookers.add(fixtures.createUser());
+            }
+        });
+        LocalDateTime start = LocalDateTime.now().plusDays(10);
+        BookingDtoIn dto = bookingDto(start, start.plusDays(2));
+        CountDownLatch ready = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Booking>> results = new ArrayList<>();
+
+        for (User user : bookers) {
+            results.add(executor.submit(() -> {
+                ready.await();
+                return bookingService.create(dto, user.getId());
+            }));
+        }
+        ready.countDown();
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+
+        int created = 0;
+        int rejected = 0;
+        for (Future<Booking> result : results) {
+            try {
+                result.get();
+                created++;
+            } catch (Exception e) {
+                assertTrue(e.getCause() instanceof AvailabilityException);
+                rejected++;
+            }
+        }
+        assertEquals(1, created);
+        assertEquals(threads - 1, rejected);
+    }
+
+    @Test
+    void createAllowsSlotAfterOverlappingBookingIsRejected() throws Exception {
+        LocalDateTime start = LocalDateTime.now().plusDays(20);
+        Booking first = bookingService.create(bookingDto(start, start.plusDays(2)), booker.getId());
+
+        assertThrows(AvailabilityException.class,
+                () -> bookingService.create(bookingDto(start.plusDays(1), start.plusDays(3)), booker.getId()));
+
+        bookingService.checkRequest(owner.getId(), first.getId(), false);
+
+        Booking second = bookingService.create(bookingDto(start.plusDays(1), start.plusDays(3)), booker.getId());
+        assertEquals(BookingStatus.WAITING, second.getStatus());
+        bookingService.create(bookingDto(start.plusDays(3), start.plusDays(4)), booker.getId());
+    }
+
+    @Test
+    void checkRequestLetsOnlyOneOfConcurrentDecisionsWin() throws Exception {
+        LocalDateTime start = LocalDateTime.now().plusDays(40);
+        Booking booking = bookingService.create(bookingDto(start, start.plusDays(1)), booker.getId());
+        int threads = 8;
+        List<Callable<Booking>> decisions = new ArrayList<>();
+
+        for (int i = 0; i < threads; i++) {
+            boolean approved = i % 2 == 0;
+            decisions.add(() -> bookingService.checkRequest(owner.getId(), booking.getId(), approved));
+        }
+
+        List<Object> results = runConcurrently(decisions);
+        long approvals = results.stream()
+                .filter(x -> x instanceof Booking && ((Booking) x).getStatus() == BookingStatus.APPROVED)
+                .count();
+
+        assertTrue(approvals <= 1);
+        results.stream()
+                .filter(x -> x instanceof Exception)
+                .forEach(x -> assertTrue(x instanceof ItemNotExistException || x instanceof UpdateConflictException,
+                        x::toString));
+        Booking saved = bookingStorage.findById(booking.getId()).orElseThrow();
+        assertEquals(approvals == 1 ? BookingStatus.APPROVED : BookingStatus.REJECTED, saved.getStatus());
+    }
+
+    @Test
+    void checkRequestApprovesConcurrentBookingsOfOneItemWithoutLostUpdates() throws Exception {
+        LocalDateTime start = LocalDateTime.now().plusDays(50);
+        int bookings = 6;
+        List<Callable<Booking>> approvals = new ArrayList<>();
+
+        for (int i = 0; i < bookings; i++) {
+            long id = bookingService.create(bookingDto(start.plusDays(i), start.plusDays(i).plusHours(12)),
+                    booker.getId()).getId();
+            approvals.add(() -> bookingService.checkRequest(owner.getId(), id, true));
+        }
+
+        List<Object> results = runConcurrently(approvals);
+        long approved = bookingStorage.findByItemIdAndStatusInAndEndAfter(item.getId(),
+                List.of(BookingStatus.APPROVED), start).size();
+
+        assertEquals(List.of(), results.stream().filter(x -> x instanceof Exception).collect(Collectors.toList()));
+        assertEquals(bookings, approved);
+        // the first approval creates the summary, every later one bumps its version
+        assertTrue(summaryStorage.findById(item.getId()).orElseThrow().getVersion() >= bookings - 1);
+    }
+
+    @Test
+    void checkRequestLeavesItemVersionToItemUpdates() throws Exception {
+        LocalDateTime start = LocalDateTime.now().plusDays(60);
+        long bookingId = bookingService.create(bookingDto(start, start.plusDays(1)), booker.getId()).getId();
+        long version = itemStorage.findById(item.getId()).orElseThrow().getVersion();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        // the owner edits the item while the booking is approved
+        transactionTemplate.executeWithoutResult(status -> {
+            Item edited = itemStorage.findById(item.getId()).orElseThrow();
+
+            try {
+                assertEquals(BookingStatus.APPROVED, executor.submit(() -> bookingService.checkRequest(
+                        owner.getId(), bookingId, true)).get(30, TimeUnit.SECONDS).getStatus());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            edited.setName("Hammer drill");
+        });
+        executor.shutdown();
+
+        Item saved = itemStorage.findById(item.getId()).orElseThrow();
+        assertEquals("Hammer drill", saved.getName());
+        assertEquals(version + 1, saved.getVersion());
+    }
+
+    @Test
+    void decideRetriesApprovalThatLostToApprovalOnAnotherNode() throws Exception {
+        LocalDateTime start = LocalDateTime.now().plusDays(70);
+        long first = bookingService.create(bookingDto(start, start.plusDays(2)), booker.getId()).getId();
+        // created on another node, so the interval index of this one doesn't know it
+        long second = transactionTemplate.execute(status -> fixtures.createBooking(itemStorage.getReferenceById(item.getId()),
+                userStorage.getReferenceById(booker.getId()), start.plusDays(1), start.plusDays(3),
+                BookingStatus.WAITING)).getId();
+        BookingService target = AopTestUtils.getTargetObject(bookingService);
+        List<Thread> workers = new ArrayList<>();
+        ExecutorService executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task);
+            workers.add(thread);
+            return thread;
+        });
+
+        // approvals conflict on the item summary, so it is there for the other node to hold
+        bookingSummaries.get(item.getId());
+
+        Future<Booking> local = transactionTemplate.execute(status -> {
+            // the other node bumps the summary version and holds the row while it approves the second booking
+            entityManager.find(ItemBookingSummary.class, item.getId(), LockModeType.PESSIMISTIC_FORCE_INCREMENT);
+            Future<Booking> result = executor.submit(() -> target.decideRetrying(owner.getId(), first, true));
+            awaitLockWait(workers.get(0));
+
+            Booking booking = bookingStorage.findById(second).orElseThrow();
+            booking.setStatus(BookingStatus.APPROVED);
+            bookingStorage.save(booking);
+            return result;
+        });
+        executor.shutdown();
+
+        // the first attempt passed the overlap check before it waited for the summary row, so only a retry that read
+        // the committed approval of the other node can refuse the slot
+        ExecutionException e = assertThrows(ExecutionException.class, () -> local.get(30, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof AvailabilityException, e.getCause()::toString);
+        assertEquals(BookingStatus.WAITING, bookingStorage.findById(first).orElseThrow().getStatus());
+        assertEquals(List.of(second), bookingStorage.findByItemIdAndStatusInAndEndAfter(item.getId(),
+                List.of(BookingStatus.APPROVED), start).stream().map(Booking::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void createAllRejectsInvalidAndOverlappingRecords() throws Exception {
+        LocalDateTime start = LocalDateTime.now().plusDays(30);
+        List<BookingDtoIn> bookings = List.of(
+                bookingDto(start, start.plusDays(2)),
+                bookingDto(start.plusDays(1), start.plusDays(3)),
+                bookingDto(start.plusDays(5), start.plusDays(4)),
+                bookingDto(start.minusDays(40), start.minusDays(39)),
+                bookingDto(start.plusDays(2), start.plusDays(3)));
+
+        List<BulkResult> results = bookingService.createAll(bookings, booker.getId());
+
+        assertNotNull(results.get(0).getId());
+        assertEquals(List.of("Item is already booked for this time"), results.get(1).getErrors());
+        assertEquals(List.of("Start time must be before end time"), results.get(2).getErrors());
+        assertEquals(List.of("end must be a future date", "start must be a future date"), results.get(3).getErrors());
+        assertNotNull(results.get(4).getId());
+        assertEquals(BookingStatus.WAITING, bookingStorage.findById(results.get(4).getId()).orElseThrow().getStatus());
+        assertEquals(List.of("You can't book your items"), bookingService.createAll(
+                List.of(bookingDto(start.plusDays(10), start.plusDays(11))), owner.getId()).get(0).getErrors());
+    }
+
+    @Test
+    void createAllKeepsItemsAcrossChunks() throws Exception {
+        List<Item> items = transactionTemplate.execute(status -> List.of(
+                fixtures.createItem(userStorage.getReferenceById(owner.getId())),
+                fixtures.createItem(userStorage.getReferenceById(owner.getId()))));
+        LocalDateTime start = LocalDateTime.now().plusDays(100);
+        List<BookingDtoIn> bookings = new ArrayList<>();
+
+        // three chunks of the JDBC batch size
+        for (int i = 0; i < 120; i++) {
+            bookings.add(objectMapper.readValue(objectMapper.writeValueAsString(Map.of("itemId",
+                    items.get(i % 2).getId(), "start", start.plusDays(i), "end", start.plusDays(i).plusHours(1))),
+                    BookingDtoIn.class));
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        List<BulkResult> results = bookingService.createAll(bookings, booker.getId());
+
+        assertTrue(results.stream().allMatch(x -> x.getId() != null));
+        // the items are read once, a cleared chunk doesn't read them again for the owner rows
+        assertEquals(2, statistics.getEntityStatistics(Item.class.getName()).getLoadCount());
+        assertEquals(0, statistics.getEntityStatistics(Item.class.getName()).getCacheHitCount());
+        assertTrue(ownerBookingStorage.findAllById(results.stream().map(BulkResult::getId)
+                .collect(Collectors.toList())).stream().allMatch(x -> x.getOwnerId() == owner.getId()));
+    }
+
+    @Test
+    void checkRequestsAppliesValidDecisionsAndReportsConflicts() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        Booking waiting = bookingStorage.findByBookerIdAndItemId(booker.getId(), item.getId()).stream()
+                .filter(x -> x.getStatus() == BookingStatus.WAITING)
+                .findFirst()
+                .orElseThrow();
+        Booking rejected = bookingStorage.findByBookerIdAndItemId(booker.getId(), item.getId()).stream()
+                .filter(x -> x.getStatus() == BookingStatus.REJECTED)
+                .findFirst()
+                .orElseThrow();
+        Booking overlapping = transactionTemplate.execute(status -> {
+            fixtures.createBooking(itemStorage.getReferenceById(item.getId()), userStorage.getReferenceById(booker.getId()),
+                    waiting.getStart().plusHours(12), waiting.getEnd().plusHours(12), BookingStatus.REJECTED);
+            return bookingStorage.findByBookerIdAndItemId(booker.getId(), item.getId()).stream()
+                    .filter(x -> x.getStart().equals(waiting.getStart().plusHours(12)))
+                    .findFirst()
+                    .orElseThrow();
+        });
+        Booking foreign = transactionTemplate.execute(status -> {
+            Item other = fixtures.createItem(userStorage.getReferenceById(booker.getId()));
+            fixtures.createBooking(other, userStorage.getReferenceById(owner.getId()), now.plusDays(1), now.plusDays(2),
+                    BookingStatus.WAITING);
+            return bookingStorage.findByBookerIdAndItemId(owner.getId(), other.getId()).get(0);
+        });
+
+        List<BulkResult> results = bookingService.checkRequests(owner.getId(), List.of(
+                decision(waiting.getId(), true),
+                decision(overlapping.getId(), true),
+                decision(rejected.getId(), false),
+                decision(waiting.getId(), false),
+                decision(foreign.getId(), true),
+                decision(-1L, true),
+                decision(null, true)));
+
+        assertEquals(waiting.getId(), results.get(0).getId());
+        assertEquals(List.of("Item is already booked for this time"), results.get(1).getErrors());
+        assertEquals(rejected.getId(), results.get(2).getId());
+        assertEquals(List.of("This booking has been already decided in this batch"), results.get(3).getErrors());
+        assertEquals(List.of("Only owner can change the status"), results.get(4).getErrors());
+        assertEquals(List.of("Booking with such id doesn't exist"), results.get(5).getErrors());
+        assertEquals(List.of("Booking id and decision are required"), results.get(6).getErrors());
+
+        Booking approved = bookingStorage.findById(waiting.getId()).orElseThrow();
+
+        assertEquals(BookingStatus.APPROVED, approved.getStatus());
+        assertEquals(waiting.getVersion() + 1, approved.getVersion());
+        assertEquals(BookingStatus.APPROVED, ownerBookingStorage.findById(waiting.getId()).orElseThrow().getStatus());
+        assertEquals(BookingStatus.REJECTED, bookingStorage.findById(overlapping.getId()).orElseThrow().getStatus());
+        assertEquals(BookingStatus.WAITING, bookingStorage.findById(foreign.getId()).orElseThrow().getStatus());
+        assertEquals(List.of("This booking has been already approved"), bookingService.checkRequests(owner.getId(),
+                List.of(decision(waiting.getId(), false))).get(0).getErrors());
+        assertThrows(ItemNotExistException.class, () -> bookingService.checkRequest(owner.getId(), waiting.getId(),
+                false));
+    }
+
+    @Test
+    void intervalIndexDropsEndedBookingsAndBookingsOfDeletedBookers() throws Exception {
+        LocalDateTime start = LocalDateTime.now().plusDays(10);
+
+        // the current approved booking, the waiting one and the new one
+        bookingService.create(bookingDto(start, start.plusDays(1)), booker.getId());
+        assertEquals(3, intervalIndex.intervalCount(item.getId()));
+
+        LocalDateTime past = LocalDateTime.now().minusDays(3).withNano(0);
+
+        transactionTemplate.executeWithoutResult(status -> fixtures.createBooking(itemStorage.getReferenceById(item.getId()),
+                userStorage.getReferenceById(booker.getId()), past, past.plusDays(1), BookingStatus.WAITING));
+        intervalIndex.approve(bookingStorage.findByBookerIdAndItemId(booker.getId(), item.getId()).stream()
+                .filter(x -> x.getStart().equals(past))
+                .findFirst()
+                .orElseThrow());
+        assertEquals(4, intervalIndex.intervalCount(item.getId()));
+
+        bookingService.create(bookingDto(start.plusDays(5), start.plusDays(6)), booker.getId());
+        assertEquals(4, intervalIndex.intervalCount(item.getId()));
+
+        userService.deleteById(booker.getId());
+        assertEquals(0, intervalIndex.intervalCount(item.getId()));
+
+        // the slots of the deleted booker are free again
+        User another = transactionTemplate.execute(status -> fixtures.createUser());
+        assertNotNull(bookingService.create(bookingDto(start, start.plusDays(1)), another.getId()).getId());
+    }
+
+    @Test
+    void intervalIndexChecksNeighboursOfLongBookings() throws Exception {
+        LocalDateTime start = LocalDateTime.now().plusDays(10).withNano(0);
+
+        bookingService.create(bookingDto(start, start.plusDays(200)), booker.getId());
+        bookingService.create(bookingDto(start.plusDays(200), start.plusDays(201)), booker.getId());
+        bookingService.create(bookingDto(start.plusDays(202), start.plusDays(203)), booker.getId());
+
+        assertThrows(AvailabilityException.class, () -> bookingService.create(bookingDto(start.plusDays(100),
+                start.plusDays(101)), booker.getId()));
+        assertThrows(AvailabilityException.class, () -> bookingService.create(bookingDto(start.minusDays(1),
+                start.plusDays(1)), booker.getId()));
+        assertThrows(AvailabilityException.class, () -> bookingService.create(bookingDto(start.plusDays(201),
+                start.plusDays(202).plusHours(1)), booker.getId()));
+        assertNotNull(bookingService.create(bookingDto(start.plusDays(201), start.plusDays(202)),
+                booker.getId()).getId());
+    }
+
+    @Test
+    void intervalIndexChecksStoredBookingsThatOverlapEachOther() throws Exception {
+        LocalDateTime start = LocalDateTime.now().plusDays(10).withNano(0);
+
+        // stored before the index checked overlaps, so they overlap each other
+        transactionTemplate.executeWithoutResult(status -> {
+            Item stored = itemStorage.getReferenceById(item.getId());
+            User storedBooker = userStorage.getReferenceById(booker.getId());
+
+            fixtures.createBooking(stored, storedBooker, start.plusDays(1), start.plusDays(31), BookingStatus.APPROVED);
+            fixtures.createBooking(stored, storedBooker, start.plusDays(2), start.plusDays(3), BookingStatus.WAITING);
+        });
+
+        assertThrows(AvailabilityException.class, () -> bookingService.create(bookingDto(start.plusDays(10),
+                start.plusDays(11)), booker.getId()));
+        assertNotNull(bookingService.create(bookingDto(start.plusDays(31), start.plusDays(32)),
+                booker.getId()).getId());
+    }
+
+    @Test
+    void intervalIndexForgetsItemsLeftWithoutIntervals() throws Exception {
+        Item other = transactionTemplate.execute(status -> fixtures.createItem(userStorage.getReferenceById(
+                owner.getId())));
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        BookingDtoIn dto = objectMapper.readValue(objectMapper.writeValueAsString(Map.of("itemId", other.getId(),
+                "start", start, "end", start.plusDays(1))), BookingDtoIn.class);
+        long bookingId = bookingService.create(dto, booker.getId()).getId();
+
+        assertTrue(intervalIndex.isIndexed(other.getId()));
+
+        bookingService.checkRequest(owner.getId(), bookingId, false);
+
+        assertFalse(intervalIndex.isIndexed(other.getId()));
+    }
+
+    private static List<Object> runConcurrently(List<Callable<Booking>> tasks) throws Exception {
+        CountDownLatch ready = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+        List<Future<Booking>> futures = new ArrayList<>();
+
+        for (Callable<Booking> task : tasks) {
+            futures.add(executor.submit(() -> {
+                ready.await();
+                return task.call();
+            }));
+        }
+        ready.countDown();
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+
+        List<Object> results = new ArrayList<>();
+        for (Future<Booking> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                results.add(e.getCause());
+            }
+        }
+        return results;
+    }
+
+    private BookingDtoIn bookingDto(LocalDateTime start, LocalDateTime end) throws Exception {
+        String json = objectMapper.writeValueAsString(Map.of("itemId", item.getId(),
+                "start", start, "end", end));
+        return objectMapper.readValue(json, BookingDtoIn.class);
+    }
+
+    private BookingDecisionDto decision(Long bookingId, boolean approved) throws Exception {
+        Map<String, Object> json = new HashMap<>(Map.of("approved", approved));
+        json.put("bookingId", bookingId);
+        return objectMapper.readValue(objectMapper.writeValueAsString(json), BookingDecisionDto.class);
+    }
+
+    private static void awaitLockWait(Thread thread) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (thread.getState() != Thread.State.TIMED_WAITING
+                || Arrays.stream(thread.getStackTrace()).noneMatch(x -> x.getClassName().startsWith("org.h2"))) {
+            assertTrue(System.nanoTime() < deadline, "The decision didn't wait for the summary row");
+            Thread.onSpinWait();
+        }
+    }
+}
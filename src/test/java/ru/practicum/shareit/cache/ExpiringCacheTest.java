@@ -0,0 +1,97 @@
+package ru.practicum.shareit.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpiringCacheTest {
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void getLoadsOnceAndCountsHitsAndMisses() {
+        ExpiringCache<String> cache = new ExpiringCache<>("test", true, 10, Duration.ofMinutes(1));
+
+        assertEquals("value 1", cache.get(1, this::load).orElseThrow());
+        assertEquals("value 1", cache.get(1, this::load).orElseThrow());
+        assertTrue(cache.get(2, x -> Optional.empty()).isEmpty());
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void getEvictsLeastRecentlyUsedAndExpiredEntries() {
+        ExpiringCache<String> sized = new ExpiringCache<>("sized", true, 2, Duration.ofMinutes(1));
+        sized.get(1, this::load);
+        sized.get(2, this::load);
+        sized.get(1, this::load);
+        sized.get(3, this::load);
+
+        assertEquals(1, sized.getEvictionCount());
+        sized.get(1, this::load);
+        assertEquals(2, sized.getHitCount());
+
+        ExpiringCache<String> expiring = new ExpiringCache<>("expiring", true, 2, Duration.ZERO);
+        expiring.get(1, this::load);
+        expiring.get(1, this::load);
+
+        assertEquals(0, expiring.getHitCount());
+        assertEquals(1, expiring.getEvictionCount());
+    }
+
+    @Test
+    void invalidateDropsEntryAndLoadsOverlappingInvalidationAreNotStored() {
+        ExpiringCache<String> cache = new ExpiringCache<>("test", true, 10, Duration.ofMinutes(1));
+        cache.get(1, this::load);
+        cache.invalidate(1);
+
+        cache.get(1, id -> {
+            cache.invalidate(1);
+            return load(id);
+        });
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    void bindToReportsCountersTaggedWithName() {
+        ExpiringCache<String> cache = new ExpiringCache<>("test", true, 1, Duration.ofMinutes(1));
+        MeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+        cache.get(1, this::load);
+        cache.get(1, this::load);
+        cache.get(2, this::load);
+
+        assertEquals(1, registry.get("shareit.cache.gets").tags("cache", "test", "result", "hit").functionCounter()
+                .count());
+        assertEquals(2, registry.get("shareit.cache.gets").tags("cache", "test", "result", "miss").functionCounter()
+                .count());
+        assertEquals(1, registry.get("shareit.cache.evictions").tag("cache", "test").functionCounter().count());
+        assertEquals(1, registry.get("shareit.cache.size").tag("cache", "test").gauge().value());
+    }
+
+    @Test
+    void disabledCacheAlwaysLoads() {
+        ExpiringCache<String> cache = new ExpiringCache<>("test", false, 10, Duration.ofMinutes(1));
+        cache.get(1, this::load);
+        cache.get(1, this::load);
+
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.size());
+    }
+
+    private Optional<String> load(long id) {
+        loads.incrementAndGet();
+        return Optional.of("value " + id);
+    }
+}
@@ -0,0 +1,137 @@
+package ru.practicum.shareit.export;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.TestFixtures;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.User;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class NdjsonExportTest {
+    private static final int ITEMS = 3;
+    private static final int BOOKINGS_PER_ITEM = 400;
+
+    @Autowired
+    private TestFixtures fixtures;
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void exportsBookingsOfBookerAndOwnerAsNdjson() throws Exception {
+        List<User> users = transactionTemplate.execute(status -> seed());
+        User owner = users.get(0);
+        User booker = users.get(1);
+
+        List<JsonNode> bookings = export("/bookings/export", booker.getId());
+        List<JsonNode> ownerBookings = export("/bookings/owner/export", owner.getId());
+
+        assertEquals(ITEMS * BOOKINGS_PER_ITEM, bookings.size());
+        assertEquals(ITEMS * BOOKINGS_PER_ITEM, ownerBookings.size());
+        assertEquals(booker.getId(), bookings.get(0).get("booker").get("id").asLong());
+        assertEquals(owner.getId(), ownerBookings.get(0).get("item").get("owner").get("id").asLong());
+        for (int i = 1; i < bookings.size(); i++) {
+            assertEquals(-1, Long.compare(bookings.get(i - 1).get("id").asLong(), bookings.get(i).get("id").asLong()));
+        }
+
+        // rows keep the shape of every other booking read rather than the entity graph
+        JsonNode listed = firstListed("/bookings", booker.getId());
+        JsonNode ownerListed = firstListed("/bookings/owner", owner.getId());
+
+        assertEquals(listed, find(bookings, listed.get("id").asLong()));
+        assertEquals(ownerListed, find(ownerBookings, ownerListed.get("id").asLong()));
+    }
+
+    @Test
+    void exportsItemsOfOwner() throws Exception {
+        User owner = transactionTemplate.execute(status -> seed()).get(0);
+
+        List<JsonNode> items = export("/items/export", owner.getId());
+
+        assertEquals(ITEMS, items.size());
+        assertEquals("Item 0", items.get(0).get("name").asText());
+    }
+
+    @Test
+    void exportOfUnknownUserFailsBeforeStreaming() throws Exception {
+        mockMvc.perform(get("/bookings/export").header("X-Sharer-User-Id", -1))
+                .andExpect(status().isNotFound());
+    }
+
+    private JsonNode firstListed(String path, long userId) throws Exception {
+        String body = mockMvc.perform(get(path).header("X-Sharer-User-Id", userId).param("size", "1"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        return objectMapper.readTree(body).get(0);
+    }
+
+    private static JsonNode find(List<JsonNode> rows, long id) {
+        return rows.stream()
+                .filter(x -> x.get("id").asLong() == id)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private List<JsonNode> export(String path, long userId) throws Exception {
+        MvcResult result = mockMvc.perform(get(path).header("X-Sharer-User-Id", userId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // only exports get the long timeout, it isn't set for async requests as a whole
+        assertEquals(Duration.ofHours(1).toMillis(), result.getRequest().getAsyncContext().getTimeout());
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(NdjsonExporter.APPLICATION_NDJSON))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        List<JsonNode> rows = new ArrayList<>();
+
+        for (String line : body.split("\n")) {
+            rows.add(objectMapper.readTree(line));
+        }
+        return rows;
+    }
+
+    private List<User> seed() {
+        User owner = fixtures.createUser();
+        User booker = fixtures.createUser();
+        LocalDateTime now = LocalDateTime.now();
+
+        for (int i = 0; i < ITEMS; i++) {
+            Item item = fixtures.createItem(owner, "Item " + i, "Exported item " + i);
+
+            for (int j = 0; j < BOOKINGS_PER_ITEM; j++) {
+                fixtures.createBooking(item, booker, now.plusDays(j), now.plusDays(j).plusHours(1),
+                        BookingStatus.APPROVED);
+            }
+        }
+        return List.of(owner, booker);
+    }
+}
@@ -0,0 +1,120 @@
+package ru.practicum.shareit.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.exception.IdempotencyCapacityException;
+import ru.practicum.shareit.exception.IdempotencyKeyException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IdempotencyStoreTest {
+    private final IdempotencyStore store = new IdempotencyStore(new ObjectMapper(), 2, Duration.ofMinutes(1),
+            Duration.ofSeconds(10));
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @Test
+    void executeRunsConcurrentDuplicatesOnce() throws Exception {
+        int threads = 8;
+        CountDownLatch ready = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                ready.await();
+                return store.execute("key", 1, "create", Map.of("name", "Drill"), this::slowRun);
+            }));
+        }
+        ready.countDown();
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+
+        for (Future<Integer> result : results) {
+            assertEquals(1, result.get());
+        }
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void executeScopesKeysAndRefusesDifferentRequest() {
+        assertEquals(1, store.execute("key", 1, "create", Map.of("name", "Drill"), runs::incrementAndGet));
+        assertEquals(2, store.execute("key", 2, "create", Map.of("name", "Drill"), runs::incrementAndGet));
+        assertEquals(1, store.execute("key", 1, "create", Map.of("name", "Drill"), runs::incrementAndGet));
+
+        assertThrows(IdempotencyKeyException.class,
+                () -> store.execute("key", 1, "create", Map.of("name", "Saw"), runs::incrementAndGet));
+        assertThrows(IdempotencyKeyException.class,
+                () -> store.execute(" ", 1, "create", Map.of("name", "Saw"), runs::incrementAndGet));
+        assertEquals(3, store.execute(null, 1, "create", Map.of("name", "Saw"), runs::incrementAndGet));
+    }
+
+    @Test
+    void executeReleasesKeyAfterFailureAndEvictsOldest() {
+        assertThrows(IllegalStateException.class, () -> store.execute("key", 1, "create", "request", () -> {
+            throw new IllegalStateException("Failed");
+        }));
+        assertEquals(1, store.execute("key", 1, "create", "request", runs::incrementAndGet));
+
+        store.execute("second", 1, "create", "request", runs::incrementAndGet);
+        store.execute("third", 1, "create", "request", runs::incrementAndGet);
+
+        assertEquals(2, store.size());
+        assertEquals(4, store.execute("key", 1, "create", "request", runs::incrementAndGet));
+    }
+
+    @Test
+    void executeKeepsKeysInProgressAndRefusesNewKeyWhenFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        for (String key : List.of("first", "second")) {
+            results.add(executor.submit(() -> store.execute(key, 1, "create", "request", () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return runs.incrementAndGet();
+            })));
+        }
+        while (store.size() < 2) {
+            Thread.onSpinWait();
+        }
+
+        assertThrows(IdempotencyCapacityException.class,
+                () -> store.execute("third", 1, "create", "request", runs::incrementAndGet));
+
+        release.countDown();
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+        int first = results.get(0).get();
+
+        // the finished keys are kept, the least recently used one makes room for the new key
+        assertEquals(first, store.execute("first", 1, "create", "request", runs::incrementAndGet));
+        assertEquals(3, store.execute("third", 1, "create", "request", runs::incrementAndGet));
+        assertEquals(first, store.execute("first", 1, "create", "request", runs::incrementAndGet));
+        assertEquals(3, runs.get());
+    }
+
+    private int slowRun() {
+        try {
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return runs.incrementAndGet();
+    }
+}
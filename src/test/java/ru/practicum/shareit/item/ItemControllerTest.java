@@ -0,0 +1,241 @@
+package ru.practicum.shareit.item;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.TestFixtures;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ItemControllerTest {
+    @Autowired
+    private TestFixtures fixtures;
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserRepository userStorage;
+    @Autowired
+    private ItemRepository itemStorage;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private User owner;
+    private User booker;
+    private Item item;
+    private Booking booking;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        transactionTemplate.executeWithoutResult(status -> {
+            owner = fixtures.createUser();
+            booker = fixtures.createUser();
+            item = fixtures.createItem(owner);
+            booking = fixtures.createBooking(item, booker, LocalDateTime.now().plusDays(1),
+                    LocalDateTime.now().plusDays(2), BookingStatus.WAITING);
+        });
+    }
+
+    @Test
+    void getByIdAnswersNotModifiedUntilBookingsOrItemChange() throws Exception {
+        String tag = itemTag(owner);
+
+        statistics.clear();
+        mockMvc.perform(get("/items/{id}", item.getId()).header("X-Sharer-User-Id", owner.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, tag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, tag));
+        // the summary, while the item and its comments come from the second-level cache
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        // the card is built from the rows read for the tag
+        statistics.clear();
+        mockMvc.perform(get("/items/{id}", item.getId()).header("X-Sharer-User-Id", owner.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, tag));
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertNotEquals(tag, itemTag(booker));
+
+        mockMvc.perform(patch("/bookings/{id}", booking.getId()).header("X-Sharer-User-Id", owner.getId())
+                        .param("approved", "true"))
+                .andExpect(status().isOk());
+        String approvedTag = itemTag(owner);
+        assertNotEquals(tag, approvedTag);
+
+        mockMvc.perform(patch("/items/{id}", item.getId()).header("X-Sharer-User-Id", owner.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Hammer drill\"}"))
+                .andExpect(status().isOk());
+        assertNotEquals(approvedTag, itemTag(owner));
+    }
+
+    @Test
+    void getItemsAndUserAnswerNotModifiedForCurrentTag() throws Exception {
+        String itemsTag = mockMvc.perform(get("/items").header("X-Sharer-User-Id", owner.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(itemsTag);
+        mockMvc.perform(get("/items").header("X-Sharer-User-Id", owner.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, itemsTag))
+                .andExpect(status().isNotModified());
+
+        String userTag = mockMvc.perform(get("/users/{id}", owner.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/users/{id}", owner.getId()).header(HttpHeaders.IF_NONE_MATCH, userTag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(patch("/users/{id}", owner.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Renamed\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/users/{id}", owner.getId()).header(HttpHeaders.IF_NONE_MATCH, userTag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void tagsFollowRenamedCommentAuthors() throws Exception {
+        transactionTemplate.executeWithoutResult(status -> fixtures.createComment(
+                itemStorage.getReferenceById(item.getId()), userStorage.getReferenceById(booker.getId()),
+                "Works well"));
+        String tag = itemTag(booker);
+        String itemsTag = itemsTag();
+
+        mockMvc.perform(patch("/users/{id}", booker.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Renamed\"}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/items/{id}", item.getId()).header("X-Sharer-User-Id", booker.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, tag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.comments[0].authorName").value("Renamed"));
+        mockMvc.perform(get("/items").header("X-Sharer-User-Id", owner.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, itemsTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].comments[0].authorName").value("Renamed"));
+    }
+
+    @Test
+    void getByIdTagFollowsRecomputedSummary() throws Exception {
+        mockMvc.perform(patch("/bookings/{id}", booking.getId()).header("X-Sharer-User-Id", owner.getId())
+                        .param("approved", "true"))
+                .andExpect(status().isOk());
+        String tag = itemTag(owner);
+
+        // the next booking has started, so the next read recomputes the summary with it as the last one
+        LocalDateTime started = LocalDateTime.now().minusHours(1);
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.createNativeQuery("update bookings set start_date = ?1 where booking_id = ?2")
+                    .setParameter(1, started)
+                    .setParameter(2, booking.getId())
+                    .executeUpdate();
+            entityManager.createNativeQuery("update item_booking_summaries set next_start = ?1 where item_id = ?2")
+                    .setParameter(1, started)
+                    .setParameter(2, item.getId())
+                    .executeUpdate();
+        });
+
+        String refreshedTag = mockMvc.perform(get("/items/{id}", item.getId())
+                        .header("X-Sharer-User-Id", owner.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, tag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastBooking.id").value(booking.getId()))
+                .andExpect(jsonPath("$.nextBooking").doesNotExist())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/items/{id}", item.getId()).header("X-Sharer-User-Id", owner.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, refreshedTag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void getItemsBuildsPageOnce() throws Exception {
+        String tag = itemsTag();
+
+        statistics.clear();
+        mockMvc.perform(get("/items").header("X-Sharer-User-Id", owner.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, tag))
+                .andExpect(status().isNotModified());
+        long notModified = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        mockMvc.perform(get("/items").header("X-Sharer-User-Id", owner.getId()))
+                .andExpect(status().isOk());
+        // the comments are the only thing a full page reads on top of its tag
+        assertTrue(statistics.getPrepareStatementCount() <= notModified + 1);
+    }
+
+    @Test
+    void getAvailabilityRevalidatesAndFollowsDecisionsAndDeletedBookers() throws Exception {
+        String from = LocalDateTime.now().withNano(0).toString();
+        String to = LocalDateTime.now().plusDays(5).withNano(0).toString();
+        String tag = availabilityTag(from, to);
+
+        mockMvc.perform(get("/items/{id}/availability", item.getId()).param("from", from).param("to", to)
+                        .header(HttpHeaders.IF_NONE_MATCH, tag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(patch("/bookings/{id}", booking.getId()).header("X-Sharer-User-Id", owner.getId())
+                        .param("approved", "true"))
+                .andExpect(status().isOk());
+        String approvedTag = availabilityTag(from, to);
+        assertNotEquals(tag, approvedTag);
+
+        // the booking goes with its booker by the database cascade
+        mockMvc.perform(delete("/users/{id}", booker.getId()))
+                .andExpect(status().isOk());
+        assertEquals(tag, availabilityTag(from, to));
+    }
+
+    private String availabilityTag(String from, String to) throws Exception {
+        return mockMvc.perform(get("/items/{id}/availability", item.getId()).param("from", from).param("to", to))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private String itemsTag() throws Exception {
+        return mockMvc.perform(get("/items").header("X-Sharer-User-Id", owner.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private String itemTag(User user) throws Exception {
+        return mockMvc.perform(get("/items/{id}", item.getId()).header("X-Sharer-User-Id", user.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+}
@@ -0,0 +1,359 @@
+package ru.practicum.shareit.item;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.TestFixtures;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingService;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.comment.CommentRepository;
+import ru.practicum.shareit.exception.PaginationException;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemForOwnerDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.search.IndexedItemSearchEngine;
+import ru.practicum.shareit.item.search.LikeItemSearchEngine;
+import ru.practicum.shareit.pagination.CursorPage;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserService;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class ItemServiceTest {
+    @Autowired
+    private TestFixtures fixtures;
+    @Autowired
+    private ItemService itemService;
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private ItemRepository itemStorage;
+    @Autowired
+    private BookingRepository bookingStorage;
+    @Autowired
+    private CommentRepository commentStorage;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void getItemsByUserIdRunsConstantNumberOfQueries() {
+        User smallOwner = createOwnerWithItems(2);
+        User bigOwner = createOwnerWithItems(20);
+
+        statistics.clear();
+        itemService.getItemsByUserId(smallOwner.getId(), null, 100).getContent();
+        long smallCount = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        itemService.getItemsByUserId(bigOwner.getId(), null, 100).getContent();
+        long bigCount = statistics.getPrepareStatementCount();
+
+        assertEquals(smallCount, bigCount);
+        assertEquals(6, bigCount);
+
+        statistics.clear();
+        itemService.getItemsByUserId(bigOwner.getId(), null, 100).getContent();
+
+        // the page of items and their summaries, the comments come from the query cache
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void getByIdReadsBookingSummaryMaintainedByApprovals() {
+        User owner = createOwnerWithItems(1);
+        long itemId = itemStorage.findByOwnerId(owner.getId()).get(0).getId();
+        ItemForOwnerDto before = itemService.getById(itemId, owner.getId());
+        Booking waiting = bookingStorage.findByItemIdAndStatusInAndEndAfter(itemId, List.of(BookingStatus.WAITING),
+                LocalDateTime.now()).get(0);
+
+        bookingService.checkRequest(owner.getId(), waiting.getId(), true);
+
+        statistics.clear();
+        ItemForOwnerDto after = itemService.getById(itemId, owner.getId());
+
+        // the summary lookup; the approval bumped the summary rather than the item, so the item stays in
+        // the second-level cache, the comments come from the query cache and no bookings are read
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(before.getLastBooking().getId(), after.getLastBooking().getId());
+        assertEquals(waiting.getId(), after.getNextBooking().getId());
+        assertEquals(waiting.getStart(), after.getNextBooking().getStart());
+    }
+
+    @Test
+    void getByIdForgetsBookingsOfDeletedBooker() {
+        User owner = createOwnerWithItems(1);
+        long itemId = itemStorage.findByOwnerId(owner.getId()).get(0).getId();
+        ItemForOwnerDto before = itemService.getById(itemId, owner.getId());
+
+        assertNotNull(before.getLastBooking());
+        assertNotNull(before.getNextBooking());
+
+        // the bookings of the booker are deleted by the database cascade
+        userService.deleteById(before.getLastBooking().getBookerId());
+        ItemForOwnerDto after = itemService.getById(itemId, owner.getId());
+
+        assertNull(after.getLastBooking());
+        assertNull(after.getNextBooking());
+    }
+
+    @Test
+    void secondLevelCacheFollowsNewCommentsAndDeletedOwners() {
+        User owner = createOwnerWithItems(1);
+        long itemId = itemStorage.findByOwnerId(owner.getId()).get(0).getId();
+
+        assertEquals(1, itemService.getById(itemId, owner.getId()).getComments().size());
+
+        fixtures.createComment(itemStorage.findById(itemId).orElseThrow(), owner, "Second comment");
+
+        assertEquals(2, itemService.getById(itemId, owner.getId()).getComments().size());
+
+        // items and comments of the owner are deleted by the database cascade
+        userService.deleteById(owner.getId());
+
+        assertTrue(itemStorage.findById(itemId).isEmpty());
+        assertTrue(commentStorage.findByItemId(itemId).isEmpty());
+    }
+
+    @Test
+    void getItemsByUserIdMatchesGetById() {
+        User owner = createOwnerWithItems(3);
+
+        List<ItemForOwnerDto> items = itemService.getItemsByUserId(owner.getId(), null, 100).getContent();
+
+        assertEquals(3, items.size());
+        for (ItemForOwnerDto dto : items) {
+            ItemForOwnerDto expected = itemService.getById(dto.getId(), owner.getId());
+
+            assertNotNull(dto.getLastBooking());
+            assertNotNull(dto.getNextBooking());
+            assertEquals(expected.getLastBooking().getId(), dto.getLastBooking().getId());
+            assertEquals(expected.getNextBooking().getId(), dto.getNextBooking().getId());
+            assertEquals(expected.getComments().size(), dto.getComments().size());
+            assertEquals(expected.getComments().get(0).getAuthorName(), dto.getComments().get(0).getAuthorName());
+        }
+    }
+
+    @Test
+    void getItemsByUserIdReturnsEmptyListWithoutItems() {
+        User user = fixtures.createUser();
+
+        assertEquals(0, itemService.getItemsByUserId(user.getId(), null, 100).getContent().size());
+    }
+
+    @Test
+    void getAvailabilityMergesApprovedBookingsAndRefreshesAfterApproval() {
+        User owner = createOwnerWithItems(1);
+        long itemId = itemStorage.findByOwnerId(owner.getId()).get(0).getId();
+        Booking waiting = bookingStorage.findByItemIdAndStatusInAndEndAfter(itemId, List.of(BookingStatus.WAITING),
+                LocalDateTime.now()).get(0);
+        LocalDateTime from = waiting.getStart().minusDays(1).withNano(0);
+        LocalDateTime to = from.plusDays(5);
+
+        List<ItemAvailabilityDto> windows = itemService.getAvailability(itemId, from, to);
+
+        assertEquals(2, windows.size());
+        assertEquals(from, windows.get(0).getStart());
+        assertEquals(to, windows.get(1).getEnd());
+
+        bookingService.checkRequest(owner.getId(), waiting.getId(), true);
+        statistics.clear();
+        windows = itemService.getAvailability(itemId, from, to);
+
+        // one range query reading no bookings, the item stays in the second-level cache through the approval
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityStatistics(Booking.class.getName()).getLoadCount());
+        assertEquals(2, windows.size());
+        assertEquals(waiting.getStart(), windows.get(0).getEnd());
+    }
+
+    @Test
+    void getAvailabilityServesRangesWithinOneBucketFromOneEntry() {
+        Item item = fixtures.createItem(fixtures.createUser());
+        LocalDateTime from = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.HOURS).plusMinutes(10);
+        LocalDateTime to = from.plusDays(2);
+
+        assertEquals(List.of(from, to), bounds(itemService.getAvailability(item.getId(), from, to)));
+
+        statistics.clear();
+        List<ItemAvailabilityDto> shifted = itemService.getAvailability(item.getId(), from.plusSeconds(7),
+                to.plusSeconds(7));
+
+        // a range a few seconds later is clipped from the same entry, the item comes from the second-level cache
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(List.of(from.plusSeconds(7), to.plusSeconds(7)), bounds(shifted));
+    }
+
+    private static List<LocalDateTime> bounds(List<ItemAvailabilityDto> windows) {
+        assertEquals(1, windows.size());
+        return List.of(windows.get(0).getStart(), windows.get(0).getEnd());
+    }
+
+    @Test
+    void searchPagesByScoreAndId() {
+        String token = UUID.randomUUID().toString();
+        User owner = fixtures.createUser();
+        Item described = fixtures.createItem(owner, "Item", "With " + token);
+        Item first = fixtures.createItem(owner, "Item " + token, "Item");
+        Item second = fixtures.createItem(owner, "Item " + token, "Item");
+
+        List<Item> firstPage = itemStorage.search(token, 11, 0, PageRequest.of(0, 2));
+        List<Item> secondPage = itemStorage.search(token, 8, second.getId(), PageRequest.of(0, 2));
+
+        assertEquals(List.of(first.getId(), second.getId()), List.of(firstPage.get(0).getId(), firstPage.get(1).getId()));
+        assertEquals(1, secondPage.size());
+        assertEquals(described.getId(), secondPage.get(0).getId());
+
+        List<Item> offsetPage = new LikeItemSearchEngine(itemStorage).search(token, null, 1, 2).getContent();
+
+        assertEquals(List.of(second.getId(), described.getId()),
+                List.of(offsetPage.get(0).getId(), offsetPage.get(1).getId()));
+    }
+
+    @Test
+    void searchEnginesRankPunctuatedWordsAlike() {
+        String token = UUID.randomUUID().toString().replace("-", "");
+        User owner = fixtures.createUser();
+        List<Long> ids = new ArrayList<>();
+
+        for (String[] fields : List.of(new String[]{token + "-press", "Rig"}, new String[]{"Rig", "Rotary " + token},
+                new String[]{token + " cordless", "Rig"}, new String[]{"Rig", token + "ing rig"},
+                new String[]{"Rig " + token + ",", "Rig"})) {
+            Item item = new Item();
+            item.setName(fields[0]);
+            item.setDescription(fields[1]);
+            item.setAvailable(true);
+            ids.add(itemService.create(item, owner.getId()).getId());
+        }
+
+        List<Long> expected = List.of(ids.get(2), ids.get(0), ids.get(4), ids.get(1), ids.get(3));
+
+        assertEquals(expected, new LikeItemSearchEngine(itemStorage).search(token, null, 0, 10).getContent().stream()
+                .map(Item::getId)
+                .collect(Collectors.toList()));
+        assertEquals(expected, itemService.findItems(token, 0, 10, null).getContent().stream()
+                .map(ItemDto::getId)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void searchForgetsItemsOfDeletedOwners() {
+        String token = UUID.randomUUID().toString();
+        User owner = fixtures.createUser();
+
+        for (int i = 0; i < 2; i++) {
+            Item item = new Item();
+            item.setName("Item " + token);
+            item.setDescription("Item");
+            item.setAvailable(true);
+            itemService.create(item, owner.getId());
+        }
+
+        assertEquals(2, itemService.findItems(token, 0, 2, null).getContent().size());
+
+        userService.deleteById(owner.getId());
+        CursorPage<ItemDto> page = itemService.findItems(token, 0, 2, null);
+
+        assertTrue(page.getContent().isEmpty());
+        assertNull(page.getNext());
+    }
+
+    @Test
+    void searchSkipsItemsDeletedBehindTheIndex() {
+        String token = UUID.randomUUID().toString();
+        User owner = fixtures.createUser();
+        List<Long> ids = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            Item item = new Item();
+            item.setName("Item " + token);
+            item.setDescription("Item");
+            item.setAvailable(true);
+            ids.add(itemService.create(item, owner.getId()).getId());
+        }
+        // deleted as by another node, the index of this one still holds it
+        itemStorage.deleteById(ids.get(0));
+
+        List<ItemDto> page = itemService.findItems(token, 0, 2, null).getContent();
+
+        assertEquals(ids.subList(1, 3), page.stream().map(ItemDto::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void indexedSearchFallsBackToLikeUntilLoaded() {
+        String token = UUID.randomUUID().toString();
+        long id = transactionTemplate.execute(status -> fixtures.createItem(fixtures.createUser(), "Drill " + token, "Drill"))
+                .getId();
+        IndexedItemSearchEngine engine = new IndexedItemSearchEngine(itemStorage);
+
+        // the index of the new engine is empty, so only the LIKE query can find the item
+        assertEquals(List.of(id), engine.search(token, null, 0, 10).getContent().stream()
+                .map(Item::getId)
+                .collect(Collectors.toList()));
+
+        engine.load();
+
+        assertEquals(List.of(id), engine.search(token, null, 0, 10).getContent().stream()
+                .map(Item::getId)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void searchRejectsOffsetsPastTheResultCap() {
+        assertNotNull(itemService.findItems("item", 990, 10, null));
+        assertThrows(PaginationException.class, () -> itemService.findItems("item", 991, 10, null));
+        assertThrows(PaginationException.class, () -> itemService.findItems("item", 0, 1001, null));
+    }
+
+
+    private User createOwnerWithItems(int count) {
+        return transactionTemplate.execute(status -> saveOwnerWithItems(count));
+    }
+
+    private User saveOwnerWithItems(int count) {
+        User owner = fixtures.createUser();
+        User booker = fixtures.createUser();
+        LocalDateTime now = LocalDateTime.now();
+
+        for (int i = 0; i < count; i++) {
+            Item item = fixtures.createItem(owner, "Item " + i, "Description " + i);
+
+            fixtures.createBooking(item, booker, now.minusDays(3), now.minusDays(2), BookingStatus.APPROVED);
+            fixtures.createBooking(item, booker, now.minusDays(1), now.plusDays(1), BookingStatus.REJECTED);
+            fixtures.createBooking(item, booker, now.plusDays(2), now.plusDays(3), BookingStatus.APPROVED);
+            fixtures.createBooking(item, booker, now.plusDays(1), now.plusDays(2), BookingStatus.WAITING);            fixtures.createComment(item, booker, "Comment " + i);
+        }
+        return owner;
+    }
+}
@@ -0,0 +1,80 @@
+package ru.practicum.shareit.item.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NgramItemIndexTest {
+    private final NgramItemIndex index = new NgramItemIndex();
+
+    @Test
+    void searchRanksNameMatchesAboveDescriptionMatches() {
+        index.put(1, "Table", "Wooden table for a drill press", true);
+        index.put(2, "Drill", "Cordless drill", true);
+        index.put(3, "Drill bits", "Set of bits", false);
+
+        assertEquals(List.of(2L, 1L), ids(index.search("DRILL", null, 0, 10)));
+        assertEquals(List.of(1L), ids(index.search("drill", null, 1, 10)));
+    }
+
+    @Test
+    void searchHandlesShortQueriesAndUpdates() {
+        index.put(1, "Saw", "Hand saw", true);
+        index.put(2, "Hammer", "Heavy hammer", true);
+
+        assertEquals(List.of(1L), ids(index.search("sa", null, 0, 10)));
+
+        index.put(1, "Axe", "Sharp axe", true);
+
+        assertEquals(List.of(), ids(index.search("saw", null, 0, 10)));
+        assertEquals(List.of(1L), ids(index.search("axe", null, 0, 10)));
+
+        index.remove(2);
+
+        assertEquals(List.of(), ids(index.search("hammer", null, 0, 10)));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void searchContinuesAfterCursor() {
+        index.put(1, "Drill", "Old drill", true);
+        index.put(2, "Drill", "New drill", true);
+        index.put(3, "Table", "Table for a drill", true);
+
+        List<SearchHit> firstPage = index.search("drill", null, 0, 2);
+
+        assertEquals(List.of(1L, 2L), ids(firstPage));
+        assertEquals(List.of(3L), ids(index.search("drill", firstPage.get(1), 0, 2)));
+    }
+
+    @Test
+    void searchRanksWholeWordsAboveSubstrings() {
+        index.put(1, "Drilling rig", "Rig", true);
+        index.put(2, "Rig", "Rotary drill", true);
+        index.put(3, "Rig", "Drilling rig", true);
+        index.put(4, "Drill, cordless", "Rig", true);
+
+        index.put(5, "Drill press", "Rig", true);
+
+        // only spaces separate words, "Drill," is a part of a word
+        assertEquals(List.of(5L, 1L, 4L, 2L, 3L), ids(index.search("drill", null, 0, 10)));
+    }
+
+    @Test
+    void searchKeepsOnlyTheRequestedPageOfManyMatches() {
+        for (long id = 1; id <= 1000; id++) {
+            index.put(id, id % 100 == 0 ? "Drill " + id : "Item " + id, "Fits a drill", true);
+        }
+
+        assertEquals(List.of(100L, 200L, 300L), ids(index.search("drill", null, 0, 3)));
+        assertEquals(List.of(900L, 1000L, 1L, 2L), ids(index.search("drill", null, 8, 4)));
+        assertEquals(List.of(), ids(index.search("drill", null, 1000, 4)));
+    }
+
+    private static List<Long> ids(List<SearchHit> hits) {
+        return hits.stream().map(SearchHit::getId).collect(Collectors.toList());
+    }
+}
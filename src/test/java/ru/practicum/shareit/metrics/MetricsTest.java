@@ -0,0 +1,54 @@
+package ru.practicum.shareit.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.item.ItemService;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MetricsTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void requestsRecordLatencyQueriesAndServiceTimers() throws Exception {
+        mockMvc.perform(get("/items").header("X-Sharer-User-Id", 1))
+                .andExpect(status().isOk());
+
+        assertNotNull(meterRegistry.find("http.server.requests").tag("uri", "/items").tag("outcome", "SUCCESS")
+                .timer());
+        assertTrue(meterRegistry.find("http.server.requests.queries").tag("uri", "/items").summary().count() > 0);
+        assertNotNull(meterRegistry.find("shareit.service").tag("class", ItemService.class.getName())
+                .tag("method", "getItemsByUserId").timer());
+        assertNotNull(meterRegistry.find("hibernate.statements").functionCounter());
+        assertNotNull(meterRegistry.find("shareit.accesslog.events").tag("result", "dropped").functionCounter());
+        assertNotNull(meterRegistry.find("shareit.cache.gets").tags("cache", "availability", "result", "miss")
+                .functionCounter());
+
+        mockMvc.perform(get("/actuator/metrics/http.server.requests"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void slowQueryEndpointListsFingerprintsOfExecutedStatements() throws Exception {
+        mockMvc.perform(get("/items").header("X-Sharer-User-Id", 1))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/slowqueries").param("limit", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.fingerprint =~ /select .* from items .*/)]").isNotEmpty())
+                .andExpect(jsonPath("$[0].count").isNumber());
+    }
+}
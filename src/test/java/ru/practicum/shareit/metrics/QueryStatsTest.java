@@ -0,0 +1,60 @@
+package ru.practicum.shareit.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class QueryStatsTest {
+    @Test
+    void fingerprintIgnoresLiteralsListLengthCaseAndWhitespace() {
+        String fingerprint = SqlFingerprint.of("select i.item_id from items i\n  where i.item_id in (?, ?, ?) "
+                + "and i.item_name = 'Drill' and i.version > 10 /* comment */");
+
+        assertEquals("select i.item_id from items i where i.item_id in (?+) and i.item_name = ? and i.version > ?",
+                fingerprint);
+        assertEquals(fingerprint, SqlFingerprint.of("SELECT i.item_id FROM items i WHERE i.item_id IN (?, ?) "
+                + "AND i.item_name = 'It''s' AND i.version > 2"));
+    }
+
+    @Test
+    void recordsExecutionsPerFingerprintAndCountsSlowOnes() {
+        QueryStats stats = new QueryStats(Duration.ofMillis(100), 10);
+
+        stats.record("select * from users where user_id = 1", TimeUnit.MILLISECONDS.toNanos(2));
+        stats.record("select * from users where user_id = 2", TimeUnit.MILLISECONDS.toNanos(150));
+        stats.record("select * from items", TimeUnit.MILLISECONDS.toNanos(1));
+
+        List<QueryFingerprintStats> top = stats.top(10);
+
+        assertEquals(2, top.size());
+        assertEquals("select * from users where user_id = ?", top.get(0).getFingerprint());
+        assertEquals(2, top.get(0).getCount());
+        assertEquals(1, top.get(0).getSlowCount());
+        assertEquals(150.0, top.get(0).getMaxMs());
+        assertEquals("QueryStatsTest.recordsExecutionsPerFingerprintAndCountsSlowOnes",
+                top.get(0).getLastSlowCaller());
+        assertEquals(0, top.get(1).getSlowCount());
+        assertNull(top.get(1).getLastSlowCaller());
+    }
+
+    @Test
+    void fingerprintsOverTheLimitAreAddedUpAsOther() {
+        QueryStats stats = new QueryStats(Duration.ofSeconds(1), 2);
+
+        for (int i = 0; i < 5; i++) {
+            stats.record("select * from table_" + (char) ('a' + i), 1000);
+        }
+
+        assertEquals(2, stats.size());
+        assertEquals(3, stats.top(10).stream()
+                .filter(x -> x.getFingerprint().equals(QueryStats.OTHER))
+                .findFirst()
+                .orElseThrow()
+                .getCount());
+    }
+}
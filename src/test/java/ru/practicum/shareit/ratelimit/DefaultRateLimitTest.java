@@ -0,0 +1,75 @@
+package ru.practicum.shareit.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.practicum.shareit.TestFixtures;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs with the default properties, like the API tests do.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class DefaultRateLimitTest {
+    private static final List<String> STATES = List.of("ALL", "CURRENT", "PAST", "FUTURE", "WAITING", "REJECTED");
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void defaultProfilePassesBurstOfApiFlow() throws Exception {
+        long owner = create(post("/users"), "{\"name\": \"Owner\", \"email\": \"" + TestFixtures.email() + "\"}");
+        long booker = create(post("/users"), "{\"name\": \"Booker\", \"email\": \"" + TestFixtures.email() + "\"}");
+        long item = create(post("/items").header("X-Sharer-User-Id", owner),
+                "{\"name\": \"Drill\", \"description\": \"Simple drill\", \"available\": true}");
+        LocalDateTime start = LocalDateTime.now().plusDays(1).withNano(0);
+        long booking = create(post("/bookings").header("X-Sharer-User-Id", booker),
+                "{\"itemId\": " + item + ", \"start\": \"" + start + "\", \"end\": \"" + start.plusDays(1) + "\"}");
+
+        mockMvc.perform(patch("/bookings/{id}", booking).header("X-Sharer-User-Id", owner)
+                        .param("approved", "true"))
+                .andExpect(status().isOk());
+
+        // every state of both listings a few times over within a second, well past the expensive burst
+        for (int i = 0; i < 3; i++) {
+            for (String state : STATES) {
+                mockMvc.perform(get("/bookings").header("X-Sharer-User-Id", booker).param("state", state))
+                        .andExpect(status().isOk());
+                mockMvc.perform(get("/bookings/owner").header("X-Sharer-User-Id", owner).param("state", state))
+                        .andExpect(status().isOk());
+            }
+            mockMvc.perform(get("/items/search").header("X-Sharer-User-Id", booker).param("text", "drill"))
+                    .andExpect(status().isOk());
+        }
+
+        assertNull(meterRegistry.find("shareit.ratelimit.rejected").counter());
+    }
+
+    private long create(MockHttpServletRequestBuilder request, String body) throws Exception {
+        String response = mockMvc.perform(request.contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        return objectMapper.readTree(response).get("id").asLong();
+    }
+}
@@ -0,0 +1,50 @@
+package ru.practicum.shareit.ratelimit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.TestFixtures;
+import ru.practicum.shareit.user.User;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"shareit.rate-limit.enabled=true", "shareit.rate-limit.expensive.rate=0.1",
+        "shareit.rate-limit.expensive.burst=2"})
+@AutoConfigureMockMvc
+class RateLimitTest {
+    @Autowired
+    private TestFixtures fixtures;
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void expensiveEndpointsAreLimitedPerUser() throws Exception {
+        User owner = fixtures.createUser();
+        User other = fixtures.createUser();
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/bookings").header("X-Sharer-User-Id", owner.getId()))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/bookings").header("X-Sharer-User-Id", owner.getId()))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "10"))
+                .andExpect(jsonPath("$.error").exists());
+
+        mockMvc.perform(get("/items").header("X-Sharer-User-Id", owner.getId()))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/bookings").header("X-Sharer-User-Id", other.getId()))
+                .andExpect(status().isOk());
+        assertEquals(1, meterRegistry.counter("shareit.ratelimit.rejected", "budget", "expensive").count());
+    }
+}
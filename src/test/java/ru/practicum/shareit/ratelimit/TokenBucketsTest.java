@@ -0,0 +1,39 @@
+package ru.practicum.shareit.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TokenBucketsTest {
+    private final AtomicLong clock = new AtomicLong(1_000);
+    private final TokenBuckets buckets = new TokenBuckets(1024, 2, 3, clock::get);
+
+    @Test
+    void tryAcquireAllowsBurstThenRefillsAtRate() {
+        assertEquals(0, buckets.tryAcquire(1));
+        assertEquals(0, buckets.tryAcquire(1));
+        assertEquals(0, buckets.tryAcquire(1));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), buckets.tryAcquire(1));
+        assertEquals(0, buckets.tryAcquire(2));
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+
+        assertEquals(0, buckets.tryAcquire(1));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), buckets.tryAcquire(1));
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, buckets.tryAcquire(1));
+        }
+    }
+
+    @Test
+    void constructorRejectsSlotCountNotPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBuckets(1000, 1, 1));
+    }
+}
@@ -0,0 +1,111 @@
+package ru.practicum.shareit.threads;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+import ru.practicum.shareit.TestFixtures;
+import ru.practicum.shareit.user.User;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Starts the application with the virtual profile. Needs a Java 21 runtime, older ones skip it.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "shareit.rate-limit.enabled=false")
+@ActiveProfiles({"test", "virtual"})
+@EnabledIf("ru.practicum.shareit.threads.VirtualThreads#isSupported")
+class VirtualThreadContextTest {
+    private static final int REQUESTS = 100;
+
+    @Autowired
+    private TestFixtures fixtures;
+    @Autowired
+    private ServletWebServerApplicationContext context;
+    @Autowired
+    @Qualifier("requestExecutor")
+    private ExecutorService requestExecutor;
+    @Autowired
+    @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    private AsyncTaskExecutor taskExecutor;
+
+    @Test
+    void requestsAndAsyncWorkRunOnVirtualThreads() throws Exception {
+        TomcatWebServer webServer = (TomcatWebServer) context.getWebServer();
+
+        assertSame(requestExecutor, webServer.getTomcat().getConnector().getProtocolHandler().getExecutor());
+        assertTrue(isVirtual(taskExecutor.submit(Thread::currentThread).get()));
+    }
+
+    @Test
+    void concurrentBookingsOfOneItemDontPinCarrierThreads() throws Exception {
+        User owner = fixtures.createUser();
+        User booker = fixtures.createUser();
+        long itemId = fixtures.createItem(owner, "Drill", "Contended drill").getId();
+        String baseUrl = "http://localhost:" + context.getWebServer().getPort();
+        HttpClient http = HttpClient.newHttpClient();
+        LocalDateTime start = LocalDateTime.now().plusDays(1).withNano(0);
+        List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>();
+        Path dump = Files.createTempFile("pinned", ".jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+
+            // every booking takes the lock of the same item and runs JDBC calls holding it
+            for (int i = 0; i < REQUESTS; i++) {
+                String body = "{\"itemId\": " + itemId + ", \"start\": \"" + start.plusDays(i) + "\", \"end\": \""
+                        + start.plusDays(i).plusHours(1) + "\"}";
+
+                responses.add(http.sendAsync(HttpRequest.newBuilder(URI.create(baseUrl + "/bookings"))
+                        .header("X-Sharer-User-Id", String.valueOf(booker.getId()))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(), HttpResponse.BodyHandlers.discarding()));
+            }
+            for (CompletableFuture<HttpResponse<Void>> response : responses) {
+                assertEquals(200, response.get().statusCode());
+            }
+
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<String> pinned = RecordingFile.readAllEvents(dump).stream()
+                .map(RecordedEvent::toString)
+                .collect(Collectors.toList());
+
+        Files.delete(dump);
+        assertEquals(List.of(), pinned);
+    }
+
+    private static boolean isVirtual(Thread thread) throws Exception {
+        return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+    }
+}
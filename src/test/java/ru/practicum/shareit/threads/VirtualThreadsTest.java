@@ -0,0 +1,32 @@
+package ru.practicum.shareit.threads;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VirtualThreadsTest {
+
+    @Test
+    void newExecutorRunsTasksOnNamedVirtualThreadsOrFailsOnOldRuntimes() throws Exception {
+        if (!VirtualThreads.isSupported()) {
+            assertThrows(IllegalStateException.class, () -> VirtualThreads.newExecutor("test-vt-"));
+            return;
+        }
+
+        ExecutorService executor = VirtualThreads.newExecutor("test-vt-");
+        try {
+            String name = executor.submit(() -> Thread.currentThread().getName()).get();
+            boolean virtual = executor.submit(() -> (Boolean) Thread.class.getMethod("isVirtual")
+                    .invoke(Thread.currentThread())).get();
+
+            assertTrue(name.startsWith("test-vt-"));
+            assertEquals(true, virtual);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package ru.practicum.shareit.user;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.bulk.BulkImporter;
+import ru.practicum.shareit.bulk.BulkResult;
+import ru.practicum.shareit.exception.UpdateConflictException;
+import ru.practicum.shareit.user.dto.UserDto;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.OptimisticLockException;
+import javax.persistence.PersistenceException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.practicum.shareit.TestFixtures.user;
+
+@SpringBootTest
+class UserServiceTest {
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userStorage;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private BulkImporter bulkImporter;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void createAllReportsEveryRecordAndBatchesInserts() {
+        String prefix = UUID.randomUUID().toString();
+        String taken = userService.create(user("Taken", prefix + "-taken@mail.ru")).getEmail();
+        List<UserDto> users = new ArrayList<>();
+
+        for (int i = 0; i < 120; i++) {
+            users.add(UserDto.builder().name("User " + i).email(prefix + "-" + i + "@mail.ru").build());
+        }
+        users.add(UserDto.builder().name("Repeated").email(prefix + "-0@mail.ru").build());
+        users.add(UserDto.builder().name("Taken").email(taken).build());
+        users.add(UserDto.builder().name(" ").email("not an email").build());
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        List<BulkResult> results = userService.createAll(users);
+
+        assertTrue(statistics.getPrepareStatementCount() < 10);
+        assertEquals(123, results.size());
+        for (int i = 0; i < 120; i++) {
+            assertNotNull(results.get(i).getId());
+            assertNull(results.get(i).getErrors());
+            assertTrue(userStorage.existsById(results.get(i).getId()));
+        }
+        assertEquals(List.of("User with such email already exists"), results.get(120).getErrors());
+        assertEquals(List.of("User with such email already exists"), results.get(121).getErrors());
+        assertEquals(List.of("email must be a well-formed email address", "name must not be blank"),
+                results.get(122).getErrors());
+    }
+
+    @Test
+    void createAllRejectsRecordsTheDatabaseWouldRefuse() {
+        String prefix = UUID.randomUUID().toString();
+        List<BulkResult> results = userService.createAll(List.of(
+                UserDto.builder().name("Kept").email(prefix + "-kept@mail.ru").build(),
+                UserDto.builder().name("x".repeat(256)).email(prefix + "-long@mail.ru").build()));
+
+        assertNotNull(results.get(0).getId());
+        assertEquals(List.of("name size must be between 0 and 255"), results.get(1).getErrors());
+        assertTrue(userStorage.existsById(results.get(0).getId()));
+    }
+
+    @Test
+    void importFailsWholeWhenFlushMeetsConcurrentChange() {
+        String prefix = UUID.randomUUID().toString();
+        String taken = userService.create(user("Taken", prefix + "-taken@mail.ru")).getEmail();
+        List<UserDto> users = List.of(
+                UserDto.builder().name("Fresh").email(prefix + "-fresh@mail.ru").build(),
+                UserDto.builder().name("Taken meanwhile").email(taken).build());
+
+        // a conversion that didn't see the taken email, as if it was saved after the pre-check
+        assertThrows(UpdateConflictException.class, () -> transactionTemplate.execute(status ->
+                bulkImporter.importAll(users, x -> user(x.getName(), x.getEmail()), userStorage::save, User::getId)));
+        assertTrue(userStorage.findByEmailIn(List.of(prefix + "-fresh@mail.ru")).isEmpty());
+    }
+
+    @Test
+    void importPassesOnFlushFailuresOtherThanConflicts() {
+        String prefix = UUID.randomUUID().toString();
+        List<UserDto> users = List.of(UserDto.builder().name("Long").email(prefix + "-long@mail.ru").build());
+
+        // a conversion that lets through a name longer than the column, a bug rather than a concurrent change
+        PersistenceException e = assertThrows(PersistenceException.class, () -> transactionTemplate.execute(
+                status -> bulkImporter.importAll(users, x -> user(x.getName().repeat(100), x.getEmail()),
+                        userStorage::save, User::getId)));
+        assertFalse(e instanceof OptimisticLockException);
+        assertTrue(userStorage.findByEmailIn(List.of(prefix + "-long@mail.ru")).isEmpty());
+    }
+}